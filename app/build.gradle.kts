@@ -29,7 +29,17 @@ android {
             )
         }
     }
+    testOptions {
+        // Robolectric tests inflate the app's layouts and read its resources
+        unitTests.isIncludeAndroidResources = true
+        // Time budgets of the scale tests are loose unless run with -Dbudget.strictTime=true
+        unitTests.all {
+            it.systemProperty("budget.strictTime", System.getProperty("budget.strictTime") ?: "false")
+        }
+    }
     compileOptions {
+        // java.time on API 24/25 (see utils/DateUtils)
+        isCoreLibraryDesugaringEnabled = true
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
@@ -54,10 +64,16 @@ dependencies {
     implementation("androidx.coordinatorlayout:coordinatorlayout:1.2.0")
     // AppCompat
     implementation("androidx.appcompat:appcompat:1.6.1")
+    // LiveData
+    implementation(libs.lifecycle.livedata)
+    // java.time backport for minSdk 24
+    coreLibraryDesugaring(libs.desugar.jdk.libs)
 
     implementation(libs.appcompat)
     implementation(libs.material)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.androidx.test.core)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -0,0 +1,34 @@
+package com.afonso.fiveminutediary;
+
+import android.app.Application;
+
+import com.afonso.fiveminutediary.image.ImageLoader;
+
+/**
+ * Application entry point. Starts the background warm-up of Firebase and the
+ * repository before the first activity is created, and gives decoded images back
+ * when the system runs low on memory.
+ */
+public class DiaryApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupOrchestrator.start(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // From UI_HIDDEN on no image is on screen, so every cached bitmap can be decoded again later
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            ImageLoader.getInstance(this).trimMemory();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        ImageLoader.getInstance(this).trimMemory();
+    }
+}
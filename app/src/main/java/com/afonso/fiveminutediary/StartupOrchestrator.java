@@ -0,0 +1,72 @@
+package com.afonso.fiveminutediary;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.afonso.fiveminutediary.data.DataRepository;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Warms up the app's expensive singletons on background threads at process start,
+ * so the first activity finds them ready instead of building them on the main thread.
+ *
+ * <p>Order follows the dependencies:</p>
+ * <ol>
+ *     <li>FirebaseApp (normally already done by Firebase's init provider; this is a no-op then).</li>
+ *     <li>In parallel: FirebaseAuth (reads the signed-in user from disk), FirebaseFirestore,
+ *         and the time-zone rules used by {@link DateUtils}.</li>
+ *     <li>DataRepository, once Auth and Firestore exist; its constructor applies the
+ *         Firestore settings, which must happen before any query.</li>
+ *     <li>If someone is signed in: today's entry and the profile are requested on the main
+ *         thread, where the repository's callbacks run, so the home screen attaches to
+ *         loads that are already in flight.</li>
+ * </ol>
+ *
+ * <p>Nothing waits on this. An activity that needs a singleton first simply creates it
+ * itself; {@link DataRepository#getInstance} is synchronized, so the settings are still
+ * applied exactly once.</p>
+ */
+public final class StartupOrchestrator {
+
+    private static final String TAG = "StartupOrchestrator";
+
+    private StartupOrchestrator() {
+    }
+
+    public static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        long startedAt = SystemClock.elapsedRealtime();
+
+        FirebaseApp.initializeApp(appContext);
+
+        CompletableFuture<FirebaseAuth> auth =
+                CompletableFuture.supplyAsync(FirebaseAuth::getInstance, AppExecutors.compute());
+        CompletableFuture<FirebaseFirestore> firestore =
+                CompletableFuture.supplyAsync(FirebaseFirestore::getInstance, AppExecutors.compute());
+        CompletableFuture.runAsync(DateUtils::today, AppExecutors.compute());
+
+        auth.thenCombineAsync(firestore, (a, f) -> DataRepository.getInstance(appContext), AppExecutors.compute())
+                .thenAcceptBoth(auth, (repo, a) -> {
+                    Log.d(TAG, "Repository ready after " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+                    if (a.getCurrentUser() == null) return;
+
+                    AppExecutors.runOnMain(() -> {
+                        repo.prefetchEntryForDay(DateUtils.today());
+                        repo.getUserProfile(profile ->
+                                Log.d(TAG, "Profile prefetched after " + (SystemClock.elapsedRealtime() - startedAt) + " ms"));
+                    });
+                })
+                .exceptionally(e -> {
+                    // Activities create whatever is missing on demand
+                    Log.e(TAG, "Startup warm-up failed", e);
+                    return null;
+                });
+    }
+}
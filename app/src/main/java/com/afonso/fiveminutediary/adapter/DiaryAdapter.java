@@ -5,31 +5,83 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.graphics.Bitmap;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.afonso.fiveminutediary.R;
 import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageLoader;
+import com.afonso.fiveminutediary.image.ImageStore;
+import com.afonso.fiveminutediary.utils.AppExecutors;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
-public class DiaryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+/**
+ * History list adapter. Holds one {@link EntryRow} per entry; month headers are drawn by
+ * {@link MonthHeaderDecoration} from the precomputed {@link SectionIndex}, so adapter
+ * positions stay stable when a month boundary changes.
+ *
+ * <p>Rows are formatted by {@link EntryRowBuilder} on a background thread once per data change,
+ * then handed to {@link ListAdapter}, which diffs them against the current list on a background
+ * thread as well. Only rows that actually changed are rebound, and binding only assigns
+ * precomputed fields to views.</p>
+ *
+ * <p>Preview text is applied with {@link AppCompatTextView#setTextFuture}, so its measure and
+ * layout run on a background executor during prefetch instead of on the UI thread.</p>
+ *
+ * <p>Thumbnails come from {@link ImageLoader}: memory hits are set while binding, misses are
+ * decoded in the background, and each ViewHolder cancels its pending load when it is rebound
+ * or recycled, so a fast fling never decodes on the main thread or shows a stale image.</p>
+ */
+public class DiaryAdapter extends ListAdapter<EntryRow, DiaryAdapter.EntryViewHolder> {
+
+    /**
+     * Identity is the entry id; contents are compared by the entry's content hash
+     * so new snapshot objects with the same data are not rebound.
+     */
+    private static final DiffUtil.ItemCallback<EntryRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<EntryRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull EntryRow oldItem, @NonNull EntryRow newItem) {
+            return oldItem.id != null && oldItem.id.equals(newItem.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull EntryRow oldItem, @NonNull EntryRow newItem) {
+            return oldItem.contentHash == newItem.contentHash;
+        }
+    };
 
-    private static final int TYPE_HEADER = 0;
-    private static final int TYPE_ENTRY = 1;
+    /** Size of the thumbnail column in item_diary_entry.xml. */
+    private static final int THUMBNAIL_SIZE_DP = 48;
 
-    private List<Object> items = new ArrayList<>(); // Mixed list of headers and entries
     private Context context;
     private OnEntryClickListener listener;
+    private final EntryRowBuilder rowBuilder;
+    private final ImageLoader imageLoader;
+    private final int thumbnailSizePx;
+
+    /** Incremented on every setEntries call; lets a stale background build drop its result. */
+    private int generation = 0;
+
+    /** Month sections matching the committed list. Swapped in together with the list. */
+    private SectionIndex sectionIndex = SectionIndex.EMPTY;
+
+    private RecyclerView recyclerView;
+
+    /** Text metrics of the preview TextView, read once from a prototype row. */
+    private PrecomputedTextCompat.Params previewParams;
 
     public interface OnEntryClickListener {
         void onEntryClick(DiaryEntry entry);
@@ -37,92 +89,95 @@ public class DiaryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     public DiaryAdapter(Context context, OnEntryClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
         this.listener = listener;
+        this.rowBuilder = new EntryRowBuilder(context.getResources(), ImageStore.getInstance(context));
+        this.imageLoader = ImageLoader.getInstance(context);
+        this.thumbnailSizePx = Math.round(THUMBNAIL_SIZE_DP * context.getResources().getDisplayMetrics().density);
+        setHasStableIds(true);
     }
 
+    /**
+     * Formats the entries into rows on a background thread and submits the result.
+     * Must be called on the main thread.
+     */
     public void setEntries(List<DiaryEntry> entries) {
-        items.clear();
-
-        if (entries.isEmpty()) {
-            notifyDataSetChanged();
-            return;
-        }
-
-        // Group entries by month/year
-        String currentMonthYear = "";
-
-        for (DiaryEntry entry : entries) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTimeInMillis(entry.getTimestamp());
-
-            int month = cal.get(Calendar.MONTH);
-            int year = cal.get(Calendar.YEAR);
-
-            // Create month/year string using string resources
-            String[] monthNames = context.getResources().getStringArray(R.array.month_names);
-            String entryMonthYear = monthNames[month] + " " + year;
+        int buildGeneration = ++generation;
+
+        // Snapshot both lists here: the repository keeps mutating its cache on the main thread
+        List<DiaryEntry> snapshot = new ArrayList<>(entries);
+        List<EntryRow> previous = getCurrentList();
+        PrecomputedTextCompat.Params params = getPreviewParams();
+
+        AppExecutors.compute().execute(() -> {
+            EntryRowBuilder.Result result = rowBuilder.build(snapshot, previous, params, AppExecutors.compute());
+            AppExecutors.runOnMain(() -> {
+                if (buildGeneration != generation) return;
+                submitList(result.rows, () -> {
+                    sectionIndex = result.sections;
+                    if (recyclerView != null) {
+                        recyclerView.invalidateItemDecorations();
+                    }
+                });
+            });
+        });
+    }
 
-            if (!entryMonthYear.equals(currentMonthYear)) {
-                // Add month header
-                items.add(entryMonthYear);
-                currentMonthYear = entryMonthYear;
+    /**
+     * Reads the preview's text metrics from a prototype row the first time they are needed.
+     * Must be called on the main thread.
+     */
+    private PrecomputedTextCompat.Params getPreviewParams() {
+        if (previewParams == null) {
+            View prototype = LayoutInflater.from(context).inflate(R.layout.item_diary_entry, null, false);
+            TextView preview = prototype.findViewById(R.id.previewText);
+            if (preview instanceof AppCompatTextView) {
+                previewParams = TextViewCompat.getTextMetricsParams(preview);
             }
-
-            // Add entry
-            items.add(entry);
         }
+        return previewParams;
+    }
 
-        notifyDataSetChanged();
+    /** Month sections for the currently displayed rows. */
+    public SectionIndex getSectionIndex() {
+        return sectionIndex;
     }
 
     @Override
-    public int getItemViewType(int position) {
-        return items.get(position) instanceof String ? TYPE_HEADER : TYPE_ENTRY;
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        this.recyclerView = recyclerView;
     }
 
-    @NonNull
     @Override
-    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        if (viewType == TYPE_HEADER) {
-            View view = LayoutInflater.from(parent.getContext())
-                    .inflate(R.layout.item_month_header, parent, false);
-            return new HeaderViewHolder(view);
-        } else {
-            View view = LayoutInflater.from(parent.getContext())
-                    .inflate(R.layout.item_diary_entry, parent, false);
-            return new EntryViewHolder(view);
-        }
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        this.recyclerView = null;
     }
 
     @Override
-    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        if (holder instanceof HeaderViewHolder) {
-            String monthYear = (String) items.get(position);
-            ((HeaderViewHolder) holder).bind(monthYear);
-        } else if (holder instanceof EntryViewHolder) {
-            DiaryEntry entry = (DiaryEntry) items.get(position);
-            ((EntryViewHolder) holder).bind(entry);
-        }
+    public long getItemId(int position) {
+        return getItem(position).stableId;
     }
 
+    @NonNull
     @Override
-    public int getItemCount() {
-        return items.size();
+    public EntryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_diary_entry, parent, false);
+        return new EntryViewHolder(view);
     }
 
-    // Header ViewHolder
-    class HeaderViewHolder extends RecyclerView.ViewHolder {
-        TextView monthYearText;
-
-        HeaderViewHolder(View view) {
-            super(view);
-            monthYearText = view.findViewById(R.id.monthYearText);
-        }
+    @Override
+    public void onBindViewHolder(@NonNull EntryViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
 
-        void bind(String monthYear) {
-            monthYearText.setText(monthYear);
-        }
+    @Override
+    public void onViewRecycled(@NonNull EntryViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.clearThumbnail();
     }
 
     // Entry ViewHolder
@@ -131,42 +186,74 @@ public class DiaryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         TextView monthShort;
         TextView previewText;
         TextView metaText;
+        View thumbnailCard;
+        ImageView thumbnailImage;
         ImageButton deleteButton;
 
+        /** Pending thumbnail load for the row currently bound, if any. */
+        ImageLoader.Request thumbnailRequest;
+
         EntryViewHolder(View view) {
             super(view);
             dayNumber = view.findViewById(R.id.dayNumber);
             monthShort = view.findViewById(R.id.monthShort);
             previewText = view.findViewById(R.id.previewText);
             metaText = view.findViewById(R.id.metaText);
+            thumbnailCard = view.findViewById(R.id.thumbnailCard);
+            thumbnailImage = view.findViewById(R.id.thumbnailImage);
             deleteButton = view.findViewById(R.id.deleteEntryButton);
         }
 
-        void bind(DiaryEntry entry) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTimeInMillis(entry.getTimestamp());
+        void bind(EntryRow row) {
+            dayNumber.setText(row.dayNumber);
+            monthShort.setText(row.monthShort);
+            if (previewParams != null && previewText instanceof AppCompatTextView) {
+                ((AppCompatTextView) previewText).setTextFuture(
+                        row.previewFuture(previewParams, AppExecutors.compute()));
+            } else {
+                previewText.setText(row.preview);
+            }
+            metaText.setText(row.wordCountLabel);
+            bindThumbnail(row.thumbnailPath);
 
-            // Day number
-            dayNumber.setText(String.valueOf(cal.get(Calendar.DAY_OF_MONTH)));
+            // Click listeners
+            itemView.setOnClickListener(v -> listener.onEntryClick(row.entry));
+            deleteButton.setOnClickListener(v -> showDeleteConfirmation(row.entry));
+        }
 
-            // Month short using string resources
-            String[] monthShortNames = context.getResources().getStringArray(R.array.month_names_short);
-            monthShort.setText(monthShortNames[cal.get(Calendar.MONTH)]);
+        private void bindThumbnail(String path) {
+            clearThumbnail();
+            if (path == null) {
+                thumbnailCard.setVisibility(View.GONE);
+                return;
+            }
+            thumbnailCard.setVisibility(View.VISIBLE);
 
-            // Preview text (first 80 characters)
-            String preview = entry.getText();
-            if (preview.length() > 80) {
-                preview = preview.substring(0, 80) + "...";
+            Bitmap cached = imageLoader.getCached(path, thumbnailSizePx, thumbnailSizePx);
+            if (cached != null) {
+                thumbnailImage.setImageBitmap(cached);
+                return;
             }
-            previewText.setText(preview);
 
-            // Word count using plurals
-            int words = entry.getText().trim().split("\\s+").length;
-            metaText.setText(context.getResources().getQuantityString(R.plurals.word_count, words, words));
+            thumbnailRequest = imageLoader.load(path, thumbnailSizePx, thumbnailSizePx, new ImageLoader.Callback() {
+                @Override
+                public void onLoaded(Bitmap bitmap) {
+                    thumbnailImage.setImageBitmap(bitmap);
+                }
+
+                @Override
+                public void onFailed() {
+                    thumbnailCard.setVisibility(View.GONE);
+                }
+            });
+        }
 
-            // Click listeners
-            itemView.setOnClickListener(v -> listener.onEntryClick(entry));
-            deleteButton.setOnClickListener(v -> showDeleteConfirmation(entry));
+        void clearThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
+            thumbnailImage.setImageDrawable(null);
         }
 
         private void showDeleteConfirmation(DiaryEntry entry) {
@@ -181,4 +268,4 @@ public class DiaryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
                     .show();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.afonso.fiveminutediary.adapter;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Immutable, fully formatted view-model for one history row.
+ * Built off the main thread by {@link EntryRowBuilder} so binding only assigns fields to views.
+ *
+ * <p>The preview's text layout is precomputed as a {@link PrecomputedTextCompat} future on a
+ * background executor. It is created once per row and metrics params, so rows carried over
+ * from a previous build keep their already measured text.</p>
+ */
+public final class EntryRow {
+
+    /** The entry this row was built from. Used for click and delete callbacks. */
+    public final DiaryEntry entry;
+
+    public final String id;
+    public final long stableId;
+    public final int contentHash;
+
+    public final String dayNumber;
+    public final String monthShort;
+    public final String preview;
+    public final String wordCountLabel;
+
+    /** year * 12 + month; rows with the same key belong to the same month section. */
+    public final int headerKey;
+
+    /** Localised month/year label, e.g. "March 2025". */
+    public final String headerLabel;
+
+    /** File to show in the thumbnail column, or null if the entry has no image. */
+    public final String thumbnailPath;
+
+    /** Params the current preview future was computed with. Guarded by this. */
+    private PrecomputedTextCompat.Params previewParams;
+
+    /** Background text layout of {@link #preview}. Guarded by this. */
+    private Future<PrecomputedTextCompat> previewFuture;
+
+    EntryRow(DiaryEntry entry, long stableId, int contentHash,
+             String dayNumber, String monthShort, String preview, String wordCountLabel,
+             int headerKey, String headerLabel, String thumbnailPath) {
+        this.entry = entry;
+        this.id = entry.getId();
+        this.stableId = stableId;
+        this.contentHash = contentHash;
+        this.dayNumber = dayNumber;
+        this.monthShort = monthShort;
+        this.preview = preview;
+        this.wordCountLabel = wordCountLabel;
+        this.headerKey = headerKey;
+        this.headerLabel = headerLabel;
+        this.thumbnailPath = thumbnailPath;
+    }
+
+    /**
+     * Returns the precomputed preview for the given text metrics, starting the computation
+     * on executor the first time it is asked for. Safe to call from any thread.
+     */
+    public synchronized Future<PrecomputedTextCompat> previewFuture(
+            PrecomputedTextCompat.Params params, Executor executor) {
+        if (previewFuture == null || !params.equals(previewParams)) {
+            previewParams = params;
+            previewFuture = PrecomputedTextCompat.getTextFuture(preview, params, executor);
+        }
+        return previewFuture;
+    }
+}
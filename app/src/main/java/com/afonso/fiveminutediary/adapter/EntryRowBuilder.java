@@ -0,0 +1,171 @@
+package com.afonso.fiveminutediary.adapter;
+
+import android.content.res.Resources;
+import android.util.Log;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.data.ContentHasher;
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageImporter;
+import com.afonso.fiveminutediary.image.ImageStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Turns a list of entries into the rows and month {@link SectionIndex} shown by {@link DiaryAdapter}.
+ *
+ * <p>Meant to run on a background thread once per data change. Resource arrays and the
+ * Calendar are fetched once per build, and rows whose entry hasn't changed are reused
+ * from the previous list instead of being formatted again.</p>
+ */
+final class EntryRowBuilder {
+
+    private static final String TAG = "EntryRowBuilder";
+
+    /** Maximum number of characters shown in the preview. */
+    private static final int PREVIEW_LENGTH = 80;
+
+    /**
+     * Rows at the top of the list whose preview layout is started during the build,
+     * so the first screen binds without waiting. The rest start on first bind or prefetch.
+     */
+    private static final int PRECOMPUTE_AHEAD = 16;
+
+    private final Resources resources;
+    private final ImageStore imageStore;
+
+    /** Output of a build: the rows and the section index that matches their positions. */
+    static final class Result {
+        final List<EntryRow> rows;
+        final SectionIndex sections;
+
+        Result(List<EntryRow> rows, SectionIndex sections) {
+            this.rows = rows;
+            this.sections = sections;
+        }
+    }
+
+    EntryRowBuilder(Resources resources, ImageStore imageStore) {
+        this.resources = resources;
+        this.imageStore = imageStore;
+    }
+
+    /**
+     * @param entries       entries sorted newest first
+     * @param previous      the adapter's current list, used to reuse unchanged rows
+     * @param previewParams text metrics of the preview TextView; null skips precomputation
+     * @param textExecutor  executor the preview layouts are computed on
+     * @return one row per entry plus the month sections over them
+     */
+    Result build(List<DiaryEntry> entries, List<EntryRow> previous,
+                 PrecomputedTextCompat.Params previewParams, Executor textExecutor) {
+        long start = System.nanoTime();
+
+        Map<String, EntryRow> reusable = new HashMap<>();
+        for (EntryRow item : previous) {
+            if (item.id != null) {
+                reusable.put(item.id, item);
+            }
+        }
+
+        String[] monthNames = resources.getStringArray(R.array.month_names);
+        String[] monthShortNames = resources.getStringArray(R.array.month_names_short);
+        Calendar cal = Calendar.getInstance();
+
+        List<EntryRow> rows = new ArrayList<>(entries.size());
+        int[] sectionOfPosition = new int[entries.size()];
+        List<Integer> sectionStarts = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        int currentHeaderKey = -1;
+        int reused = 0;
+
+        for (DiaryEntry entry : entries) {
+            EntryRow row;
+            int contentHash = entry.contentHash();
+
+            EntryRow old = entry.getId() != null ? reusable.get(entry.getId()) : null;
+            if (old != null && old.contentHash == contentHash) {
+                row = old;
+                reused++;
+            } else {
+                row = buildRow(entry, contentHash, cal, monthNames, monthShortNames);
+            }
+
+            if (row.headerKey != currentHeaderKey) {
+                sectionStarts.add(rows.size());
+                labels.add(row.headerLabel);
+                currentHeaderKey = row.headerKey;
+            }
+            sectionOfPosition[rows.size()] = sectionStarts.size() - 1;
+            if (previewParams != null && rows.size() < PRECOMPUTE_AHEAD) {
+                row.previewFuture(previewParams, textExecutor);
+            }
+            rows.add(row);
+        }
+
+        int[] sectionStart = new int[sectionStarts.size()];
+        for (int i = 0; i < sectionStart.length; i++) {
+            sectionStart[i] = sectionStarts.get(i);
+        }
+
+        Log.d(TAG, "Built " + entries.size() + " rows (" + reused + " reused) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new Result(rows, new SectionIndex(sectionOfPosition, sectionStart,
+                labels.toArray(new String[0])));
+    }
+
+    private EntryRow buildRow(DiaryEntry entry, int contentHash, Calendar cal,
+                              String[] monthNames, String[] monthShortNames) {
+        cal.setTimeInMillis(entry.getTimestamp());
+        int month = cal.get(Calendar.MONTH);
+        int year = cal.get(Calendar.YEAR);
+
+        String text = entry.getText() != null ? entry.getText() : "";
+        String preview = text.length() > PREVIEW_LENGTH
+                ? text.substring(0, PREVIEW_LENGTH) + "..."
+                : text;
+
+        int words = entry.countWords();
+        String wordCountLabel = resources.getQuantityString(R.plurals.word_count, words, words);
+
+        return new EntryRow(
+                entry,
+                entry.getId() != null ? stableIdOf(entry.getId()) : -1L,
+                contentHash,
+                String.valueOf(cal.get(Calendar.DAY_OF_MONTH)),
+                monthShortNames[month],
+                preview,
+                wordCountLabel,
+                year * 12 + month,
+                monthNames[month] + " " + year,
+                thumbnailPathOf(imageStore.resolveImagePath(entry))
+        );
+    }
+
+    /**
+     * Prefers the thumbnail written at import time. Images imported before thumbnails
+     * existed fall back to the full image, which the loader scales down and caches on disk.
+     */
+    private static String thumbnailPathOf(String imagePath) {
+        if (imagePath == null) return null;
+        String thumbnailPath = ImageImporter.thumbnailPathFor(imagePath);
+        if (new File(thumbnailPath).exists()) return thumbnailPath;
+        return new File(imagePath).exists() ? imagePath : null;
+    }
+
+    /**
+     * Hash of the Firestore document id. Kept non-negative so it never
+     * overlaps RecyclerView.NO_ID.
+     */
+    static long stableIdOf(String id) {
+        return ContentHasher.hashOfText(id) & Long.MAX_VALUE;
+    }
+}
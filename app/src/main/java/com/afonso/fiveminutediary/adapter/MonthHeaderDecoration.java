@@ -0,0 +1,129 @@
+package com.afonso.fiveminutediary.adapter;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.afonso.fiveminutediary.R;
+
+/**
+ * Draws the month headers of the history list and keeps the current month pinned to the top.
+ *
+ * <p>Headers are not adapter items: the decoration reserves space above the first row of each
+ * month and draws a single reused {@code item_month_header} view into it. Section boundaries
+ * come from the adapter's precomputed {@link SectionIndex}, so every lookup is O(1).</p>
+ */
+public class MonthHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private final DiaryAdapter adapter;
+    private final View headerView;
+    private final TextView monthYearText;
+
+    private int headerHeight = -1;
+    private int measuredWidth = -1;
+    private String boundLabel;
+
+    public MonthHeaderDecoration(RecyclerView parent, DiaryAdapter adapter) {
+        this.adapter = adapter;
+        this.headerView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_month_header, parent, false);
+        this.monthYearText = headerView.findViewById(R.id.monthYearText);
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view,
+                               @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        int position = parent.getChildAdapterPosition(view);
+        if (position != RecyclerView.NO_POSITION && adapter.getSectionIndex().isSectionStart(position)) {
+            ensureMeasured(parent);
+            outRect.top = headerHeight;
+        } else {
+            outRect.setEmpty();
+        }
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas canvas, @NonNull RecyclerView parent,
+                           @NonNull RecyclerView.State state) {
+        SectionIndex sections = adapter.getSectionIndex();
+        int childCount = parent.getChildCount();
+        if (childCount == 0 || sections.getPositionCount() == 0) return;
+
+        ensureMeasured(parent);
+        int left = parent.getPaddingLeft();
+        int top = parent.getPaddingTop();
+
+        // Inline headers in the gap above each month's first visible row
+        int pinnedPosition = RecyclerView.NO_POSITION;
+        boolean pinnedHeaderInPlace = false;
+        int nextHeaderTop = Integer.MAX_VALUE;
+        for (int i = 0; i < childCount; i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+
+            int childTop = child.getTop() + Math.round(child.getTranslationY());
+            boolean sectionStart = sections.isSectionStart(position);
+            int headerTop = childTop - headerHeight;
+
+            if (pinnedPosition == RecyclerView.NO_POSITION && child.getBottom() > top) {
+                pinnedPosition = position;
+                pinnedHeaderInPlace = sectionStart && headerTop >= top;
+            } else if (sectionStart && nextHeaderTop == Integer.MAX_VALUE) {
+                nextHeaderTop = headerTop;
+            }
+            if (sectionStart) {
+                drawHeader(canvas, sections.labelAt(position), left, headerTop);
+            }
+        }
+
+        // Nothing to pin while the first visible month's own header is fully on screen
+        if (pinnedPosition == RecyclerView.NO_POSITION || pinnedHeaderInPlace) return;
+
+        // Pinned header, pushed up by the next month's header as it scrolls in
+        int pinnedTop = Math.min(top, nextHeaderTop - headerHeight);
+        drawHeader(canvas, sections.labelAt(pinnedPosition), left, pinnedTop);
+    }
+
+    private void drawHeader(Canvas canvas, String label, int left, int top) {
+        if (label == null) return;
+        bind(label);
+        canvas.save();
+        canvas.translate(left, top);
+        headerView.draw(canvas);
+        canvas.restore();
+    }
+
+    /** Rebinds and relayouts the shared header view only when the label actually changes. */
+    private void bind(String label) {
+        if (label.equals(boundLabel)) return;
+        boundLabel = label;
+        monthYearText.setText(label);
+        layoutHeader();
+    }
+
+    private void ensureMeasured(RecyclerView parent) {
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (width == measuredWidth && headerHeight >= 0) return;
+        measuredWidth = width;
+
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(Math.max(width, 0), View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        headerView.measure(widthSpec, heightSpec);
+        headerHeight = headerView.getMeasuredHeight();
+        layoutHeader();
+    }
+
+    private void layoutHeader() {
+        if (measuredWidth < 0) return;
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(Math.max(measuredWidth, 0), View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(headerHeight, View.MeasureSpec.EXACTLY);
+        headerView.measure(widthSpec, heightSpec);
+        headerView.layout(0, 0, headerView.getMeasuredWidth(), headerView.getMeasuredHeight());
+    }
+}
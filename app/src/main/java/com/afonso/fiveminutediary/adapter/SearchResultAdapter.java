@@ -0,0 +1,92 @@
+package com.afonso.fiveminutediary.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.search.SearchResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Search results shown in place of the history list while a query is typed.
+ * Snippets arrive already highlighted from {@link com.afonso.fiveminutediary.search.SearchIndex},
+ * and a result list is at most a few dozen rows, so binding only formats the date.
+ */
+public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ResultViewHolder> {
+
+    public interface OnResultClickListener {
+        void onResultClick(SearchResult result);
+    }
+
+    private final OnResultClickListener listener;
+    private final String[] monthNames;
+    private final String[] monthShortNames;
+    private List<SearchResult> results = new ArrayList<>();
+
+    public SearchResultAdapter(Context context, OnResultClickListener listener) {
+        this.listener = listener;
+        this.monthNames = context.getResources().getStringArray(R.array.month_names);
+        this.monthShortNames = context.getResources().getStringArray(R.array.month_names_short);
+    }
+
+    /** Replaces the displayed results. Must be called on the main thread. */
+    public void setResults(List<SearchResult> results) {
+        this.results = new ArrayList<>(results);
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_search_result, parent, false);
+        return new ResultViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        holder.bind(results.get(position));
+    }
+
+    class ResultViewHolder extends RecyclerView.ViewHolder {
+        TextView dayNumber;
+        TextView monthShort;
+        TextView snippetText;
+        TextView metaText;
+
+        ResultViewHolder(View view) {
+            super(view);
+            dayNumber = view.findViewById(R.id.dayNumber);
+            monthShort = view.findViewById(R.id.monthShort);
+            snippetText = view.findViewById(R.id.snippetText);
+            metaText = view.findViewById(R.id.metaText);
+        }
+
+        void bind(SearchResult result) {
+            LocalDate date = LocalDate.ofEpochDay(result.day);
+            int month = date.getMonthValue() - 1;
+            dayNumber.setText(String.valueOf(date.getDayOfMonth()));
+            monthShort.setText(monthShortNames[month]);
+            metaText.setText(monthNames[month] + " " + date.getYear());
+            snippetText.setText(result.snippet);
+
+            itemView.setOnClickListener(v -> {
+                if (listener != null) listener.onResultClick(result);
+            });
+        }
+    }
+}
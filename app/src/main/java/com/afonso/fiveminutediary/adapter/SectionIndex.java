@@ -0,0 +1,44 @@
+package com.afonso.fiveminutediary.adapter;
+
+/**
+ * Precomputed month sections for the history list.
+ *
+ * <p>Maps every adapter position to its section in O(1) so {@link MonthHeaderDecoration}
+ * can answer "does a header go above this row?" and "which label is pinned?" without
+ * touching the rows themselves. Immutable; a new index is built with every row list.</p>
+ */
+public final class SectionIndex {
+
+    static final SectionIndex EMPTY = new SectionIndex(new int[0], new int[0], new String[0]);
+
+    /** Section number for each adapter position. */
+    private final int[] sectionOfPosition;
+
+    /** First adapter position of each section. */
+    private final int[] sectionStart;
+
+    /** Header label of each section. */
+    private final String[] labels;
+
+    SectionIndex(int[] sectionOfPosition, int[] sectionStart, String[] labels) {
+        this.sectionOfPosition = sectionOfPosition;
+        this.sectionStart = sectionStart;
+        this.labels = labels;
+    }
+
+    public int getPositionCount() {
+        return sectionOfPosition.length;
+    }
+
+    /** True if position is the first row of its month, i.e. a header is drawn above it. */
+    public boolean isSectionStart(int position) {
+        if (position < 0 || position >= sectionOfPosition.length) return false;
+        return sectionStart[sectionOfPosition[position]] == position;
+    }
+
+    /** Header label for the section containing position, or null if out of range. */
+    public String labelAt(int position) {
+        if (position < 0 || position >= sectionOfPosition.length) return null;
+        return labels[sectionOfPosition[position]];
+    }
+}
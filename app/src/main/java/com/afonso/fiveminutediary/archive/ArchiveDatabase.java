@@ -0,0 +1,16 @@
+package com.afonso.fiveminutediary.archive;
+
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+
+/**
+ * On-device database behind {@link EntryArchive}. It only holds data derived from Firestore,
+ * so schema changes simply drop it and the summaries are fetched again.
+ */
+@Database(entities = {SummaryRow.class}, version = 1, exportSchema = false)
+abstract class ArchiveDatabase extends RoomDatabase {
+
+    static final String NAME = "entry_archive.db";
+
+    abstract SummaryDao summaryDao();
+}
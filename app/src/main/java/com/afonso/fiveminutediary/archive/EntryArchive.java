@@ -0,0 +1,203 @@
+package com.afonso.fiveminutediary.archive;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Summaries of the diary's entries, kept on the device so that entries older than the
+ * retention window can be listed, counted and charted without their bodies staying in
+ * Firestore's cache. Maintained by {@link com.afonso.fiveminutediary.data.DataRepository}.
+ *
+ * <p>Every entry the repository sees in full is summarized here, so an entry already has its
+ * summary by the time it ages out of the window. Reads and writes run on {@link
+ * AppExecutors#diskIO()} in submission order, so a load sees every write made before it.</p>
+ *
+ * <p>The archive holds the signed-in user's entries only and is cleared on logout.</p>
+ */
+public final class EntryArchive {
+
+    private static final String TAG = "EntryArchive";
+
+    /** Characters of text kept in a summary; more than the entry list shows. */
+    public static final int PREVIEW_LENGTH = 200;
+
+    /** Ids per delete statement, below SQLite's default limit of 999 bound parameters. */
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    private static EntryArchive instance;
+
+    private final ArchiveDatabase database;
+    private final SummaryDao dao;
+
+    private EntryArchive(Context context) {
+        database = Room.databaseBuilder(context, ArchiveDatabase.class, ArchiveDatabase.NAME)
+                .fallbackToDestructiveMigration(true)
+                .build();
+        dao = database.summaryDao();
+    }
+
+    /**
+     * Returns the singleton instance, creating it if needed. The database is opened on first use.
+     *
+     * @param context any context; internally uses getApplicationContext()
+     */
+    public static synchronized EntryArchive getInstance(Context context) {
+        if (instance == null) {
+            instance = new EntryArchive(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ─── Writes ───────────────────────────────────────────────────────────────
+
+    /** Stores or refreshes the summary of a full entry. Summaries and entries without an id are ignored. */
+    public void put(DiaryEntry entry) {
+        put(Collections.singletonList(entry));
+    }
+
+    /** Stores or refreshes the summaries of the full entries in the list. */
+    public void put(List<DiaryEntry> entries) {
+        // Rows are built here so later edits to the entries can't race the write
+        List<SummaryRow> rows = rowsOf(entries);
+        if (rows.isEmpty()) return;
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                dao.upsert(rows);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to store " + rows.size() + " summaries", e);
+            }
+        });
+    }
+
+    /** Removes an entry's summary. */
+    public void remove(String entryId) {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                dao.delete(Collections.singletonList(entryId));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to remove summary " + entryId, e);
+            }
+        });
+    }
+
+    /**
+     * Removes the summaries from before the given time whose entry isn't in the given set, e.g.
+     * after storing every older entry again page by page with {@link #put(List)}.
+     *
+     * @param entryIds ids of every entry written before that time
+     */
+    public void retainBefore(long before, Set<String> entryIds) {
+        Set<String> kept = new HashSet<>(entryIds);
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                List<String> removed = new ArrayList<>();
+                for (String entryId : dao.idsBefore(before)) {
+                    if (!kept.contains(entryId)) removed.add(entryId);
+                }
+                for (int from = 0; from < removed.size(); from += DELETE_CHUNK_SIZE) {
+                    dao.delete(removed.subList(from, Math.min(from + DELETE_CHUNK_SIZE, removed.size())));
+                }
+                Log.d(TAG, "Removed " + removed.size() + " summaries before " + before);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to remove stale summaries", e);
+            }
+        });
+    }
+
+    /** Empties the archive, e.g. on logout. */
+    public void clear() {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                dao.deleteAll();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to clear archive", e);
+            }
+        });
+    }
+
+    // ─── Reads ────────────────────────────────────────────────────────────────
+
+    /**
+     * Loads the summaries of entries written before the given time, newest first. Listeners
+     * added without an executor are called on the main thread.
+     */
+    public Task<List<DiaryEntry>> loadBefore(long before) {
+        TaskCompletionSource<List<DiaryEntry>> source = new TaskCompletionSource<>();
+        AppExecutors.diskIO().execute(() -> {
+            long start = System.nanoTime();
+            try {
+                List<SummaryRow> rows = dao.before(before);
+                List<DiaryEntry> entries = new ArrayList<>(rows.size());
+                for (SummaryRow row : rows) {
+                    entries.add(entryOf(row));
+                }
+                Log.d(TAG, "Loaded " + entries.size() + " summaries in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+                source.setResult(entries);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load summaries", e);
+                source.setException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    /**
+     * Summary of a full entry, as {@link #loadBefore(long)} would return it. A summary is
+     * returned as it is.
+     */
+    public static DiaryEntry summaryOf(DiaryEntry entry) {
+        SummaryRow row = rowOf(entry);
+        return row != null ? entryOf(row) : entry;
+    }
+
+    // ─── Conversion ──────────────────────────────────────────────────────────
+
+    private static List<SummaryRow> rowsOf(List<DiaryEntry> entries) {
+        List<SummaryRow> rows = new ArrayList<>(entries.size());
+        for (DiaryEntry entry : entries) {
+            SummaryRow row = rowOf(entry);
+            if (row != null) rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Row for a full entry, or null for a summary or an entry without an id. */
+    private static SummaryRow rowOf(DiaryEntry entry) {
+        if (entry.getId() == null || !entry.hasFullText()) return null;
+        String text = entry.getText() != null ? entry.getText() : "";
+        int length = Math.min(text.length(), PREVIEW_LENGTH);
+        if (length > 0 && length < text.length() && Character.isHighSurrogate(text.charAt(length - 1))) {
+            // Don't split a character in two
+            length--;
+        }
+        return new SummaryRow(entry.getId(), entry.getTimestamp(), text.substring(0, length),
+                entry.countWords(), entry.getImagePath(), entry.getImageHash(),
+                entry.getImageWidth(), entry.getImageHeight(), entry.getUpdatedAt());
+    }
+
+    private static DiaryEntry entryOf(SummaryRow row) {
+        DiaryEntry entry = new DiaryEntry(row.timestamp, row.preview);
+        entry.setId(row.entryId);
+        entry.setImagePath(row.imagePath);
+        entry.setImageHash(row.imageHash);
+        entry.setImageWidth(row.imageWidth);
+        entry.setImageHeight(row.imageHeight);
+        entry.setUpdatedAt(row.updatedAt);
+        entry.markSummary(row.wordCount);
+        return entry;
+    }
+}
@@ -0,0 +1,28 @@
+package com.afonso.fiveminutediary.archive;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+interface SummaryDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<SummaryRow> rows);
+
+    @Query("DELETE FROM entry_summaries WHERE entryId IN (:entryIds)")
+    void delete(List<String> entryIds);
+
+    @Query("DELETE FROM entry_summaries")
+    void deleteAll();
+
+    @Query("SELECT entryId FROM entry_summaries WHERE timestamp < :before")
+    List<String> idsBefore(long before);
+
+    /** Summaries of entries written before the given time, newest first. */
+    @Query("SELECT * FROM entry_summaries WHERE timestamp < :before ORDER BY timestamp DESC")
+    List<SummaryRow> before(long before);
+}
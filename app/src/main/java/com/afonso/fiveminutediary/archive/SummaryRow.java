@@ -0,0 +1,48 @@
+package com.afonso.fiveminutediary.archive;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * What the device keeps of an entry without its body: enough to list it, count its words and
+ * keep its image referenced. The day is the {@code DateUtils} epoch day of the timestamp.
+ */
+@Entity(tableName = "entry_summaries", indices = {@Index("timestamp")})
+class SummaryRow {
+
+    @PrimaryKey
+    @NonNull
+    public String entryId;
+
+    public long timestamp;
+
+    /** Start of the text, at most {@link EntryArchive#PREVIEW_LENGTH} characters. */
+    @NonNull
+    public String preview;
+
+    /** Words in the full text. */
+    public int wordCount;
+
+    public String imagePath;
+    public String imageHash;
+    public int imageWidth;
+    public int imageHeight;
+
+    /** The entry's {@code updatedAt}, summed by the archive check. */
+    public long updatedAt;
+
+    SummaryRow(@NonNull String entryId, long timestamp, @NonNull String preview, int wordCount,
+               String imagePath, String imageHash, int imageWidth, int imageHeight, long updatedAt) {
+        this.entryId = entryId;
+        this.timestamp = timestamp;
+        this.preview = preview;
+        this.wordCount = wordCount;
+        this.imagePath = imagePath;
+        this.imageHash = imageHash;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.updatedAt = updatedAt;
+    }
+}
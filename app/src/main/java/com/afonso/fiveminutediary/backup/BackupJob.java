@@ -0,0 +1,25 @@
+package com.afonso.fiveminutediary.backup;
+
+import java.util.concurrent.CancellationException;
+
+/** Handle of a running export or import. */
+public final class BackupJob {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Stops the job at its next page, batch or image; its listener then gets onError with a
+     * {@link CancellationException}. Work already written is kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void throwIfCancelled() {
+        if (cancelled) throw new CancellationException("Backup job cancelled");
+    }
+}
@@ -0,0 +1,341 @@
+package com.afonso.fiveminutediary.backup;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.data.DataRepository;
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageStore;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the whole diary into a zip archive at a document the user picked through the
+ * Storage Access Framework.
+ *
+ * <p>The archive holds one text file, {@code diary.jsonl} (a header line, then one JSON object
+ * per entry) or {@code diary.md}, followed by every referenced image under {@code images/}.
+ * Entries are read from {@link DataRepository} a page at a time and written straight through a
+ * buffered writer into the zip stream, so memory use doesn't grow with the size of the diary;
+ * only the names of the images to copy are kept until the text file is done.</p>
+ *
+ * <p>Pages come from the server, since the device only caches recent entries, so exporting
+ * needs a connection. An export that reads fewer entries than the server counts fails rather
+ * than produce a backup with entries missing.</p>
+ *
+ * <p>Runs on {@link AppExecutors#backup()}. Progress and the result are posted to the main thread.</p>
+ */
+public class DiaryExporter {
+
+    private static final String TAG = "DiaryExporter";
+
+    /** Entries read from Firestore per page; only one page is in memory at a time. */
+    static final int PAGE_SIZE = 200;
+
+    /** Value of the header's format field, used by the importer to recognise the archive. */
+    static final String FORMAT_NAME = "5minutediary";
+
+    /** Version of the JSON Lines fields; bumped when their meaning changes. */
+    static final int FORMAT_VERSION = 1;
+
+    static final String IMAGE_FOLDER = "images/";
+
+    // JSON Lines fields
+    static final String KEY_FORMAT = "format";
+    static final String KEY_VERSION = "version";
+    static final String KEY_EXPORTED_AT = "exportedAt";
+    static final String KEY_ENTRIES = "entries";
+    static final String KEY_ID = "id";
+    static final String KEY_TIMESTAMP = "timestamp";
+    static final String KEY_DAY = "day";
+    static final String KEY_TEXT = "text";
+    static final String KEY_FORMATTING = "formatting";
+    static final String KEY_IMAGE = "image";
+    static final String KEY_IMAGE_WIDTH = "imageWidth";
+    static final String KEY_IMAGE_HEIGHT = "imageHeight";
+
+    /** Heading of each entry in diary.md. */
+    static final DateTimeFormatter MARKDOWN_HEADING = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Images copied between two progress updates. */
+    private static final int IMAGE_PROGRESS_STEP = 20;
+
+    private static final long AWAIT_TIMEOUT_SECONDS = 60;
+
+    public enum Format {
+        JSON_LINES("diary.jsonl"),
+        MARKDOWN("diary.md");
+
+        /** Name of the text file inside the archive. */
+        final String fileName;
+
+        Format(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    public enum Stage {
+        ENTRIES,
+        IMAGES
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread after each page of entries and every few images.
+         * {@code total} is -1 while the number of entries is unknown (e.g. offline).
+         */
+        void onProgress(Stage stage, int done, int total);
+
+        /** Called on the main thread once the archive is complete. */
+        void onComplete(int entries, int images);
+
+        /**
+         * Called on the main thread if the export failed or was cancelled.
+         * The partially written document has been deleted.
+         */
+        void onError(Exception e);
+    }
+
+    private static final class Counts {
+        int entries;
+        int images;
+    }
+
+    private final Context appContext;
+    private final DataRepository repo;
+    private final ImageStore imageStore;
+
+    public DiaryExporter(Context context) {
+        appContext = context.getApplicationContext();
+        repo = DataRepository.getInstance(appContext);
+        imageStore = ImageStore.getInstance(appContext);
+    }
+
+    /**
+     * Starts exporting to destination in the background.
+     *
+     * @param destination writable document, typically from ACTION_CREATE_DOCUMENT
+     * @param format      format of the text file inside the archive
+     * @param listener    progress and result callbacks
+     * @return handle that can cancel the export
+     */
+    public BackupJob export(Uri destination, Format format, Listener listener) {
+        BackupJob job = new BackupJob();
+        AppExecutors.backup().execute(() -> {
+            long start = System.nanoTime();
+            try {
+                Counts counts = exportBlocking(destination, format, job, listener);
+                Log.d(TAG, "Exported " + counts.entries + " entries and " + counts.images
+                        + " images in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                AppExecutors.runOnMain(() -> listener.onComplete(counts.entries, counts.images));
+            } catch (Exception e) {
+                Log.e(TAG, "Export failed", e);
+                deletePartialDocument(destination);
+                AppExecutors.runOnMain(() -> listener.onError(e));
+            }
+        });
+        return job;
+    }
+
+    private Counts exportBlocking(Uri destination, Format format, BackupJob job, Listener listener)
+            throws IOException, JSONException, ExecutionException, InterruptedException, TimeoutException {
+        int total = countEntries();
+        Counts counts = new Counts();
+
+        // Zip name -> local file, in the order entries reference them; shared images appear once
+        Map<String, File> images = new LinkedHashMap<>();
+
+        OutputStream stream = appContext.getContentResolver().openOutputStream(destination, "w");
+        if (stream == null) {
+            throw new FileNotFoundException("Cannot open " + destination);
+        }
+
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE))) {
+            // ─── Text file ───
+            zip.putNextEntry(new ZipEntry(format.fileName));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+            StringBuilder chunk = new StringBuilder();
+
+            if (format == Format.JSON_LINES) {
+                JSONObject header = new JSONObject();
+                header.put(KEY_FORMAT, FORMAT_NAME);
+                header.put(KEY_VERSION, FORMAT_VERSION);
+                header.put(KEY_EXPORTED_AT, System.currentTimeMillis());
+                header.put(KEY_ENTRIES, total);
+                writer.write(header.toString());
+                writer.write('\n');
+            } else {
+                writer.write("# " + appContext.getString(R.string.app_name) + "\n\n");
+            }
+
+            DocumentSnapshot cursor = null;
+            while (true) {
+                job.throwIfCancelled();
+                QuerySnapshot page = Tasks.await(repo.getEntriesPage(cursor, PAGE_SIZE),
+                        AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+                for (QueryDocumentSnapshot document : page) {
+                    DiaryEntry entry = document.toObject(DiaryEntry.class);
+                    entry.setId(document.getId());
+                    String image = collectImage(entry, images);
+
+                    chunk.setLength(0);
+                    if (format == Format.JSON_LINES) {
+                        appendJson(entry, image, chunk);
+                    } else {
+                        appendMarkdown(entry, image, chunk);
+                    }
+                    writer.append(chunk);
+                }
+
+                counts.entries += page.size();
+                int done = counts.entries;
+                AppExecutors.runOnMain(() -> listener.onProgress(Stage.ENTRIES, done, total));
+
+                if (page.size() < PAGE_SIZE) break;
+                cursor = page.getDocuments().get(page.size() - 1);
+            }
+
+            // Fewer than the server counted means pages were lost; don't ship a partial backup
+            if (total >= 0 && counts.entries < total) {
+                throw new IOException("Read " + counts.entries + " of " + total + " entries");
+            }
+
+            // Not closed: that would close the zip
+            writer.flush();
+            zip.closeEntry();
+
+            // ─── Images ───
+            // Already compressed; deflating them again only costs time
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int imageTotal = images.size();
+            int processed = 0;
+
+            for (Map.Entry<String, File> image : images.entrySet()) {
+                job.throwIfCancelled();
+                try (InputStream in = new FileInputStream(image.getValue())) {
+                    zip.putNextEntry(new ZipEntry(image.getKey()));
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        zip.write(buffer, 0, read);
+                    }
+                    zip.closeEntry();
+                    counts.images++;
+                } catch (FileNotFoundException e) {
+                    // Deleted since the entry was read; the entry keeps its reference
+                    Log.w(TAG, "Image disappeared during export: " + image.getValue());
+                }
+
+                processed++;
+                if (processed % IMAGE_PROGRESS_STEP == 0 || processed == imageTotal) {
+                    int done = processed;
+                    AppExecutors.runOnMain(() -> listener.onProgress(Stage.IMAGES, done, imageTotal));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /** Server-side count for progress, or -1 when it can't be fetched (offline). */
+    private int countEntries() throws InterruptedException {
+        try {
+            return Tasks.await(repo.countEntries(), AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "Entry count unavailable", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Adds the entry's image to the files to copy and returns its path inside the archive,
+     * or null if the entry has no image on this device.
+     */
+    private String collectImage(DiaryEntry entry, Map<String, File> images) {
+        String path = imageStore.resolveImagePath(entry);
+        if (path == null) return null;
+
+        File file = new File(path);
+        if (!file.exists()) return null;
+
+        String name = IMAGE_FOLDER + file.getName();
+        images.put(name, file);
+        return name;
+    }
+
+    private static void appendJson(DiaryEntry entry, String image, StringBuilder out) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put(KEY_ID, entry.getId());
+        json.put(KEY_TIMESTAMP, entry.getTimestamp());
+        json.put(KEY_DAY, LocalDate.ofEpochDay(DateUtils.epochDay(entry.getTimestamp())).toString());
+        json.put(KEY_TEXT, entry.getText() != null ? entry.getText() : "");
+        json.putOpt(KEY_FORMATTING, entry.getFormatting());
+        if (image != null) {
+            json.put(KEY_IMAGE, image);
+            json.put(KEY_IMAGE_WIDTH, entry.getImageWidth());
+            json.put(KEY_IMAGE_HEIGHT, entry.getImageHeight());
+        }
+        out.append(json).append('\n');
+    }
+
+    private static void appendMarkdown(DiaryEntry entry, String image, StringBuilder out) {
+        out.append("## ")
+                .append(MARKDOWN_HEADING.format(
+                        Instant.ofEpochMilli(entry.getTimestamp()).atZone(ZoneId.systemDefault())))
+                .append("\n\n");
+        if (image != null) {
+            out.append("![](").append(image).append(")\n\n");
+        }
+        if (entry.getText() != null) {
+            int length = out.length();
+            DiaryMarkdown.appendText(entry.getText(), entry.getFormatting(), out);
+            if (out.length() > length) out.append("\n\n");
+        }
+    }
+
+    private void deletePartialDocument(Uri destination) {
+        try {
+            ContentResolver resolver = appContext.getContentResolver();
+            DocumentsContract.deleteDocument(resolver, destination);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not delete partial export", e);
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.afonso.fiveminutediary.backup;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.afonso.fiveminutediary.data.DataRepository;
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageStore;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports a diary archive written by {@link DiaryExporter}, or a bare JSON Lines or Markdown
+ * file in the same layout, into the current user's diary.
+ *
+ * <p>The source is parsed as a stream and entries are committed with WriteBatch in chunks of
+ * {@link DataRepository#MAX_BATCH_SIZE}, with at most {@link #MAX_BATCHES_IN_FLIGHT} commits
+ * outstanding, so thousands of entries take a handful of round trips and memory stays bounded.
+ * Only one entry per day is kept: days the diary already has, and repeated days within the
+ * archive, are skipped.</p>
+ *
+ * <p>A zip is read twice: first its images are stored in {@link ImageStore}, then the entries
+ * are read with their image keys already known, so each entry is written once. Image
+ * reference counts and the repository's cache are updated once at the end.</p>
+ *
+ * <p>Batches only complete once the server has them, so an import needs a connection.
+ * Batches committed before a failure or cancel stay imported.</p>
+ */
+public class DiaryImporter {
+
+    private static final String TAG = "DiaryImporter";
+
+    /**
+     * WriteBatch commits allowed in flight at once. More would only queue up inside the SDK
+     * and run into Firestore's write rate limits.
+     */
+    static final int MAX_BATCHES_IN_FLIGHT = 3;
+
+    private static final long AWAIT_TIMEOUT_SECONDS = 60;
+
+    /** Bytes inspected to tell a zip from JSON Lines or Markdown. */
+    private static final int SNIFF_LIMIT = 4096;
+
+    public enum Stage {
+        IMAGES,
+        ENTRIES
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread after each stored image and each committed batch.
+         * {@code total} is -1 when it isn't known up front.
+         */
+        void onProgress(Stage stage, int done, int total);
+
+        /** Called on the main thread once every batch is committed. */
+        void onComplete(int imported, int skipped);
+
+        /** Called on the main thread if the import failed or was cancelled. */
+        void onError(Exception e);
+    }
+
+    /** Image stored from the archive, without its decoded bitmap. */
+    private static final class ImageRef {
+        final String hash;
+        final int width;
+        final int height;
+
+        ImageRef(String hash, int width, int height) {
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final Context appContext;
+    private final DataRepository repo;
+    private final ImageStore imageStore;
+
+    public DiaryImporter(Context context) {
+        appContext = context.getApplicationContext();
+        repo = DataRepository.getInstance(appContext);
+        imageStore = ImageStore.getInstance(appContext);
+    }
+
+    /**
+     * Starts importing source in the background.
+     *
+     * @param source   readable document, typically from ACTION_OPEN_DOCUMENT
+     * @param listener progress and result callbacks
+     * @return handle that can cancel the import
+     */
+    public BackupJob importFrom(Uri source, Listener listener) {
+        BackupJob job = new BackupJob();
+        AppExecutors.backup().execute(() -> {
+            long start = System.nanoTime();
+            BatchWriter writer = new BatchWriter(job, listener);
+            Exception failure = null;
+            try {
+                importBlocking(source, writer, job, listener);
+                writer.finish();
+            } catch (Exception e) {
+                Log.e(TAG, "Import failed", e);
+                failure = e;
+                writer.settleInFlight();
+            }
+
+            imageStore.acquireAll(writer.committedImageRefs);
+            // The entries hold their own references now; images none of them used are deleted
+            for (String hash : writer.storedImages) {
+                imageStore.release(hash);
+            }
+            int imported = writer.committed;
+            int skipped = writer.skipped;
+            Exception error = failure;
+            Log.d(TAG, "Imported " + imported + " entries (" + skipped + " skipped) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            AppExecutors.runOnMain(() -> {
+                repo.onEntriesImported(imported);
+                if (error != null) {
+                    listener.onError(error);
+                } else {
+                    listener.onComplete(imported, skipped);
+                }
+            });
+        });
+        return job;
+    }
+
+    private void importBlocking(Uri source, BatchWriter writer, BackupJob job, Listener listener)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        loadExistingDays(writer.days, job);
+
+        Map<String, ImageRef> images = new HashMap<>();
+        try (InputStream in = open(source)) {
+            if (!isZip(in)) {
+                readEntries(in, looksLikeJson(in), images, writer);
+                return;
+            }
+
+            // First pass: images, which the exporter writes after the text file
+            ZipInputStream zip = new ZipInputStream(in);
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                if (zipEntry.isDirectory() || !zipEntry.getName().startsWith(DiaryExporter.IMAGE_FOLDER)) {
+                    continue;
+                }
+                job.throwIfCancelled();
+                try {
+                    ImageStore.StoredImage image = imageStore.importBlocking(
+                            zip, ImageStore.hashFromFileName(zipEntry.getName()));
+                    writer.storedImages.add(image.hash);
+                    images.put(zipEntry.getName(), new ImageRef(image.hash, image.width, image.height));
+                } catch (IOException e) {
+                    // A broken image shouldn't stop the entries from being imported
+                    Log.w(TAG, "Skipping unreadable image " + zipEntry.getName(), e);
+                }
+                int done = images.size();
+                AppExecutors.runOnMain(() -> listener.onProgress(Stage.IMAGES, done, -1));
+            }
+        }
+
+        // Second pass: the text file
+        try (ZipInputStream zip = new ZipInputStream(open(source))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                String name = zipEntry.getName();
+                if (name.endsWith(".jsonl") || name.endsWith(".json")) {
+                    readEntries(zip, true, images, writer);
+                    return;
+                }
+                if (name.endsWith(".md") || name.endsWith(".markdown")) {
+                    readEntries(zip, false, images, writer);
+                    return;
+                }
+            }
+        }
+        throw new IOException("No diary file in archive");
+    }
+
+    private InputStream open(Uri source) throws FileNotFoundException {
+        InputStream in = appContext.getContentResolver().openInputStream(source);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + source);
+        }
+        return new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * Pages through the diary as it is now and marks the days that already have an entry.
+     * Only the day numbers are kept. Read from the server, so days of entries the device no
+     * longer caches are marked too; offline, the import fails here before writing anything.
+     */
+    private void loadExistingDays(BitSet days, BackupJob job)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        DocumentSnapshot cursor = null;
+        while (true) {
+            job.throwIfCancelled();
+            QuerySnapshot page = Tasks.await(repo.getEntriesPage(cursor, DiaryExporter.PAGE_SIZE),
+                    AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            for (QueryDocumentSnapshot document : page) {
+                Long timestamp = document.getLong("timestamp");
+                if (timestamp != null) {
+                    claimDay(days, timestamp);
+                }
+            }
+            if (page.size() < DiaryExporter.PAGE_SIZE) return;
+            cursor = page.getDocuments().get(page.size() - 1);
+        }
+    }
+
+    // ─── Parsing ─────────────────────────────────────────────────────────────
+
+    /** Reads entries from in until it ends, without closing it. */
+    private void readEntries(InputStream in, boolean jsonLines, Map<String, ImageRef> images,
+                             BatchWriter writer)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (jsonLines) {
+            readJsonLines(reader, images, writer);
+        } else {
+            readMarkdown(reader, images, writer);
+        }
+    }
+
+    private void readJsonLines(BufferedReader reader, Map<String, ImageRef> images, BatchWriter writer)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+
+            JSONObject json;
+            try {
+                json = new JSONObject(line);
+            } catch (JSONException e) {
+                Log.w(TAG, "Skipping unreadable line", e);
+                writer.skipped++;
+                continue;
+            }
+
+            if (json.has(DiaryExporter.KEY_FORMAT)) {
+                writer.total = json.optInt(DiaryExporter.KEY_ENTRIES, -1);
+                continue;
+            }
+
+            DiaryEntry entry = new DiaryEntry();
+            long timestamp = json.optLong(DiaryExporter.KEY_TIMESTAMP, 0);
+            if (timestamp <= 0) {
+                timestamp = parseDay(json.optString(DiaryExporter.KEY_DAY, null));
+            }
+            entry.setTimestamp(timestamp);
+            entry.setText(json.optString(DiaryExporter.KEY_TEXT, ""));
+
+            Object formatting = json.opt(DiaryExporter.KEY_FORMATTING);
+            if (formatting instanceof String) {
+                entry.setFormatting((String) formatting);
+            } else if (formatting instanceof JSONArray) {
+                entry.setFormatting(formatting.toString());
+            }
+
+            attachImage(entry, json.optString(DiaryExporter.KEY_IMAGE, null), images);
+            writer.add(entry);
+        }
+    }
+
+    /**
+     * Reads the layout written by the exporter: a "## date time" heading per entry, optionally
+     * followed by an image line, then the body. Anything before the first heading is ignored.
+     */
+    private void readMarkdown(BufferedReader reader, Map<String, ImageRef> images, BatchWriter writer)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        DiaryEntry entry = null;
+        List<String> body = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("## ")) {
+                addMarkdownEntry(entry, body, writer);
+                entry = new DiaryEntry();
+                entry.setTimestamp(parseHeading(line.substring(3).trim()));
+                body.clear();
+                continue;
+            }
+            if (entry == null) continue;
+
+            if (body.isEmpty() && entry.getImageHash() == null
+                    && line.startsWith("![](") && line.endsWith(")")) {
+                attachImage(entry, line.substring(4, line.length() - 1), images);
+                continue;
+            }
+            if (body.isEmpty() && line.trim().isEmpty()) continue;
+            body.add(line);
+        }
+        addMarkdownEntry(entry, body, writer);
+    }
+
+    private void addMarkdownEntry(DiaryEntry entry, List<String> body, BatchWriter writer)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        if (entry == null) return;
+        DiaryMarkdown.readText(body, entry);
+        writer.add(entry);
+    }
+
+    private static void attachImage(DiaryEntry entry, String name, Map<String, ImageRef> images) {
+        ImageRef image = name != null ? images.get(name) : null;
+        if (image == null) return;
+        entry.setImageHash(image.hash);
+        entry.setImageWidth(image.width);
+        entry.setImageHeight(image.height);
+    }
+
+    /** Heading timestamp as written by the exporter, or a bare date; 0 if unreadable. */
+    private static long parseHeading(String heading) {
+        try {
+            return LocalDateTime.parse(heading, DiaryExporter.MARKDOWN_HEADING)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return parseDay(heading);
+        }
+    }
+
+    /** Start of an ISO date (yyyy-MM-dd), or 0 if unreadable. */
+    private static long parseDay(String day) {
+        if (day == null) return 0;
+        try {
+            return DateUtils.startOfDay((int) LocalDate.parse(day).toEpochDay());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isZip(InputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = new byte[4];
+        int read = 0;
+        while (read < magic.length) {
+            int n = in.read(magic, read, magic.length - read);
+            if (n < 0) break;
+            read += n;
+        }
+        in.reset();
+        return read == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4;
+    }
+
+    /** True if the first non-blank character is '{', i.e. JSON Lines rather than Markdown. */
+    private static boolean looksLikeJson(InputStream in) throws IOException {
+        in.mark(SNIFF_LIMIT);
+        try {
+            for (int i = 0; i < SNIFF_LIMIT; i++) {
+                int c = in.read();
+                if (c < 0) return false;
+                if (!Character.isWhitespace(c)) return c == '{';
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Marks the local day of timestamp as having an entry. False if it already had one or the
+     * timestamp is unusable; the diary keeps one entry a day, so such an entry is skipped.
+     */
+    static boolean claimDay(BitSet days, long timestamp) {
+        if (timestamp <= 0) return false;
+        int day = DateUtils.epochDay(timestamp);
+        if (day < 0 || days.get(day)) return false;
+        days.set(day);
+        return true;
+    }
+
+    // ─── Batched writes ──────────────────────────────────────────────────────
+
+    /** Groups entries into WriteBatch commits and keeps a bounded number of them in flight. */
+    private final class BatchWriter {
+
+        private final BackupJob job;
+        private final Listener listener;
+
+        /** Days that already have an entry, in the diary or earlier in the archive. */
+        final BitSet days = new BitSet();
+
+        /** Image references of the entries in committed batches, by hash. */
+        final Map<String, Integer> committedImageRefs = new HashMap<>();
+
+        /** Hashes of the archive's images, each holding the reference its import took. */
+        final List<String> storedImages = new ArrayList<>();
+
+        /** Entries in the archive according to its header, or -1. */
+        int total = -1;
+        int committed = 0;
+        int skipped = 0;
+
+        private List<DiaryEntry> batch = new ArrayList<>(DataRepository.MAX_BATCH_SIZE);
+        private final ArrayDeque<PendingBatch> inFlight = new ArrayDeque<>();
+
+        BatchWriter(BackupJob job, Listener listener) {
+            this.job = job;
+            this.listener = listener;
+        }
+
+        void add(DiaryEntry entry) throws ExecutionException, InterruptedException, TimeoutException {
+            if (!claimDay(days, entry.getTimestamp())) {
+                skipped++;
+                return;
+            }
+            batch.add(entry);
+            if (batch.size() == DataRepository.MAX_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /** Commits the remaining entries and waits for every outstanding batch. */
+        void finish() throws ExecutionException, InterruptedException, TimeoutException {
+            flush();
+            while (!inFlight.isEmpty()) {
+                awaitOldest();
+            }
+        }
+
+        /**
+         * After a failure, waits for the batches already sent so the counts match what landed.
+         * Batches that fail as well are dropped.
+         */
+        void settleInFlight() {
+            while (!inFlight.isEmpty()) {
+                try {
+                    awaitOldest();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | TimeoutException e) {
+                    Log.w(TAG, "Batch failed after import error", e);
+                }
+            }
+        }
+
+        private void flush() throws ExecutionException, InterruptedException, TimeoutException {
+            if (batch.isEmpty()) return;
+            job.throwIfCancelled();
+
+            while (inFlight.size() >= MAX_BATCHES_IN_FLIGHT) {
+                awaitOldest();
+            }
+            inFlight.add(new PendingBatch(repo.addEntriesBatch(batch), batch));
+            batch = new ArrayList<>(DataRepository.MAX_BATCH_SIZE);
+        }
+
+        private void awaitOldest() throws ExecutionException, InterruptedException, TimeoutException {
+            PendingBatch pending = inFlight.poll();
+            Tasks.await(pending.task, AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            committed += pending.size;
+            for (Map.Entry<String, Integer> ref : pending.imageRefs.entrySet()) {
+                Integer count = committedImageRefs.get(ref.getKey());
+                committedImageRefs.put(ref.getKey(), (count != null ? count : 0) + ref.getValue());
+            }
+
+            int done = committed;
+            int expected = total;
+            AppExecutors.runOnMain(() -> listener.onProgress(Stage.ENTRIES, done, expected));
+        }
+    }
+
+    /** A committed batch waiting for the server, and what it contributes once it lands. */
+    private static final class PendingBatch {
+        final Task<Void> task;
+        final int size;
+        final Map<String, Integer> imageRefs = new HashMap<>();
+
+        PendingBatch(Task<Void> task, List<DiaryEntry> entries) {
+            this.task = task;
+            this.size = entries.size();
+            for (DiaryEntry entry : entries) {
+                if (entry.getImageHash() != null) {
+                    Integer count = imageRefs.get(entry.getImageHash());
+                    imageRefs.put(entry.getImageHash(), (count != null ? count : 0) + 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.afonso.fiveminutediary.backup;
+
+import android.util.Log;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Markdown form of an entry's text and its {@code TextFormattingSerializer} spans.
+ *
+ * <p>Bold and italic become {@code **} and {@code *}; underline, text color and highlight,
+ * which Markdown has no syntax for, become inline {@code <u>}, {@code <span>} and
+ * {@code <mark>} tags. Markers are strictly nested in a fixed order (bold, italic, underline,
+ * color, highlight, outermost first) and are closed at the end of every line, so each
+ * line is self-contained and the output can be read back unambiguously.</p>
+ *
+ * <p>Single line breaks are written as hard breaks and runs of blank lines collapse into one
+ * paragraph break, since Markdown can't express more. Everything else round-trips; JSON Lines
+ * is the lossless format.</p>
+ */
+final class DiaryMarkdown {
+
+    private static final String TAG = "DiaryMarkdown";
+
+    // Marker levels, outermost first
+    private static final int LEVEL_BOLD = 0;
+    private static final int LEVEL_ITALIC = 1;
+    private static final int LEVEL_UNDERLINE = 2;
+    private static final int LEVEL_COLOR = 3;
+    private static final int LEVEL_HIGHLIGHT = 4;
+    private static final int LEVELS = 5;
+
+    /** Characters that mean something to Markdown or inline HTML; escaped wherever they appear. */
+    static final String ESCAPED = "\\`*_<>[]#&|~";
+
+    /** Characters that start a list item or a heading underline at the beginning of a line. */
+    private static final String ESCAPED_AT_LINE_START = "-+=";
+
+    /** Formatting JSON type of each level, as written by TextFormattingSerializer. */
+    private static final String[] SPAN_TYPES = {"b", "i", "u", "c", "h"};
+
+    private static final String COLOR_OPEN = "<span style=\"color:#";
+    private static final String HIGHLIGHT_OPEN = "<mark style=\"background:#";
+
+    private DiaryMarkdown() {
+    }
+
+    /**
+     * Appends the entry text as Markdown.
+     *
+     * @param text       plain text of the entry
+     * @param formatting formatting JSON of the entry; can be null
+     * @param out        builder the Markdown is appended to
+     */
+    static void appendText(String text, String formatting, StringBuilder out) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) == '\n') start++;
+        while (end > start && text.charAt(end - 1) == '\n') end--;
+        if (start == end) return;
+
+        int[][] styles = parseStyles(text, formatting);
+        int[] open = new int[LEVELS];
+        int[] next = new int[LEVELS];
+
+        int lineStart = start;
+        while (true) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end) lineEnd = end;
+
+            appendLine(text, lineStart, lineEnd, styles, open, next, out);
+            if (lineEnd == end) break;
+
+            int breaks = 0;
+            lineStart = lineEnd;
+            while (text.charAt(lineStart) == '\n') {
+                breaks++;
+                lineStart++;
+            }
+            out.append(breaks == 1 ? "\\\n" : "\n\n");
+        }
+    }
+
+    /**
+     * Reads the formatting JSON into one value per character and marker level: 1 for the
+     * on/off styles, the ARGB value for colors, 0 when unstyled. Null if there is no formatting.
+     */
+    private static int[][] parseStyles(String text, String formatting) {
+        if (formatting == null || formatting.isEmpty()) return null;
+
+        int[][] styles = new int[LEVELS][text.length()];
+        try {
+            JSONArray spans = new JSONArray(formatting);
+            for (int i = 0; i < spans.length(); i++) {
+                JSONObject span = spans.getJSONObject(i);
+                int start = span.getInt("s");
+                int end = span.getInt("e");
+                if (start < 0 || end > text.length() || start >= end) continue;
+
+                int level = Arrays.asList(SPAN_TYPES).indexOf(span.getString("t"));
+                if (level < 0) continue;
+                int value = 1;
+                if (level == LEVEL_COLOR || level == LEVEL_HIGHLIGHT) {
+                    value = span.optInt("v");
+                }
+                for (int c = start; c < end; c++) {
+                    styles[level][c] = value;
+                }
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Unreadable formatting, exporting plain text", e);
+            return null;
+        }
+        return styles;
+    }
+
+    private static void appendLine(String text, int start, int end, int[][] styles,
+                                   int[] open, int[] next, StringBuilder out) {
+        if (styles != null) {
+            trimEmphasis(text, start, end, styles);
+        }
+        int orderedListDot = orderedListDelimiter(text, start, end);
+
+        for (int i = start; i < end; i++) {
+            for (int level = 0; level < LEVELS; level++) {
+                next[level] = styles != null ? styles[level][i] : 0;
+            }
+            transition(open, next, out);
+
+            char c = text.charAt(i);
+            if (ESCAPED.indexOf(c) >= 0
+                    || (i == start && ESCAPED_AT_LINE_START.indexOf(c) >= 0)
+                    || i == orderedListDot) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+
+        Arrays.fill(next, 0);
+        transition(open, next, out);
+    }
+
+    /**
+     * Emphasis delimiters next to whitespace aren't recognised by Markdown, so bold and italic
+     * are dropped from whitespace at the edges of a styled run. Whitespace inside a run keeps them.
+     */
+    private static void trimEmphasis(String text, int start, int end, int[][] styles) {
+        int i = start;
+        while (i < end) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            while (runEnd < end && Character.isWhitespace(text.charAt(runEnd))) runEnd++;
+
+            for (int level = LEVEL_BOLD; level <= LEVEL_ITALIC; level++) {
+                boolean inside = i > start && runEnd < end
+                        && styles[level][i - 1] != 0 && styles[level][runEnd] != 0;
+                for (int c = i; c < runEnd; c++) {
+                    styles[level][c] = inside ? 1 : 0;
+                }
+            }
+            i = runEnd;
+        }
+    }
+
+    /** Index of the "." or ")" that would turn the line into an ordered list item, or -1. */
+    private static int orderedListDelimiter(String text, int start, int end) {
+        int i = start;
+        while (i < end && Character.isDigit(text.charAt(i))) i++;
+        if (i == start || i == end) return -1;
+        char c = text.charAt(i);
+        return c == '.' || c == ')' ? i : -1;
+    }
+
+    /**
+     * Moves the open markers from {@code open} to {@code next}: closes every level from the
+     * innermost down to the outermost one that changes, then opens the active ones back up.
+     */
+    private static void transition(int[] open, int[] next, StringBuilder out) {
+        int changed = 0;
+        while (changed < LEVELS && open[changed] == next[changed]) changed++;
+        if (changed == LEVELS) return;
+
+        for (int level = LEVELS - 1; level >= changed; level--) {
+            if (open[level] != 0) appendClose(level, out);
+        }
+        for (int level = changed; level < LEVELS; level++) {
+            if (next[level] != 0) appendOpen(level, next[level], out);
+            open[level] = next[level];
+        }
+    }
+
+    private static void appendOpen(int level, int value, StringBuilder out) {
+        switch (level) {
+            case LEVEL_BOLD: out.append("**"); break;
+            case LEVEL_ITALIC: out.append('*'); break;
+            case LEVEL_UNDERLINE: out.append("<u>"); break;
+            case LEVEL_COLOR:
+                out.append(COLOR_OPEN);
+                appendColor(value, out);
+                out.append("\">");
+                break;
+            case LEVEL_HIGHLIGHT:
+                out.append(HIGHLIGHT_OPEN);
+                appendColor(value, out);
+                out.append("\">");
+                break;
+        }
+    }
+
+    private static void appendClose(int level, StringBuilder out) {
+        switch (level) {
+            case LEVEL_BOLD: out.append("**"); break;
+            case LEVEL_ITALIC: out.append('*'); break;
+            case LEVEL_UNDERLINE: out.append("</u>"); break;
+            case LEVEL_COLOR: out.append("</span>"); break;
+            case LEVEL_HIGHLIGHT: out.append("</mark>"); break;
+        }
+    }
+
+    /** Appends the color as RRGGBB; the alpha channel is always opaque in the editor. */
+    private static void appendColor(int color, StringBuilder out) {
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            out.append(Character.forDigit((color >> shift) & 0xF, 16));
+        }
+    }
+
+    // ─── Reading ─────────────────────────────────────────────────────────────
+
+    /**
+     * Reads an entry body written by {@link #appendText} back into plain text and formatting
+     * JSON. Anything it doesn't recognise as one of its own markers is kept as literal text.
+     *
+     * @param lines body lines of one entry, without line terminators
+     * @param entry receives the text and formatting
+     */
+    static void readText(List<String> lines, DiaryEntry entry) {
+        StringBuilder text = new StringBuilder();
+        JSONArray spans = new JSONArray();
+        int[] open = new int[LEVELS];
+        int[] spanStart = new int[LEVELS];
+        boolean paragraphBreak = false;
+
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                paragraphBreak = text.length() > 0;
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append(paragraphBreak ? "\n\n" : "\n");
+            }
+            paragraphBreak = false;
+
+            // An odd number of trailing backslashes ends in a hard break marker
+            int end = line.length();
+            int backslashes = 0;
+            while (backslashes < end && line.charAt(end - 1 - backslashes) == '\\') backslashes++;
+            if (backslashes % 2 == 1) end--;
+
+            readLine(line, end, text, open, spanStart, spans);
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            setLevel(level, 0, text.length(), open, spanStart, spans);
+        }
+        entry.setText(text.toString());
+        entry.setFormatting(spans.length() > 0 ? spans.toString() : null);
+    }
+
+    private static void readLine(String line, int end, StringBuilder text,
+                                 int[] open, int[] spanStart, JSONArray spans) {
+        int i = 0;
+        while (i < end) {
+            char c = line.charAt(i);
+
+            if (c == '\\' && i + 1 < end && isAsciiPunctuation(line.charAt(i + 1))) {
+                text.append(line.charAt(i + 1));
+                i += 2;
+                continue;
+            }
+
+            if (c == '*') {
+                int run = i;
+                while (run < end && line.charAt(run) == '*') run++;
+                if (!applyAsterisks(run - i, text.length(), open, spanStart, spans)) {
+                    text.append(line, i, run);
+                }
+                i = run;
+                continue;
+            }
+
+            if (c == '<') {
+                int tagEnd = line.indexOf('>', i);
+                if (tagEnd > 0 && tagEnd < end
+                        && applyTag(line.substring(i, tagEnd + 1), text.length(), open, spanStart, spans)) {
+                    i = tagEnd + 1;
+                    continue;
+                }
+            }
+
+            text.append(c);
+            i++;
+        }
+    }
+
+    /**
+     * Treats a run of asterisks as the bold/italic transition the renderer would have written
+     * with that many asterisks. False if no transition matches, e.g. a stray run from elsewhere.
+     */
+    private static boolean applyAsterisks(int length, int position,
+                                          int[] open, int[] spanStart, JSONArray spans) {
+        int bold = open[LEVEL_BOLD];
+        int italic = open[LEVEL_ITALIC];
+        for (int nextBold = 0; nextBold <= 1; nextBold++) {
+            for (int nextItalic = 0; nextItalic <= 1; nextItalic++) {
+                if (asteriskRunLength(bold, italic, nextBold, nextItalic) == length) {
+                    setLevel(LEVEL_BOLD, nextBold, position, open, spanStart, spans);
+                    setLevel(LEVEL_ITALIC, nextItalic, position, open, spanStart, spans);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Asterisks {@link #transition} writes to go from one bold/italic state to another. */
+    private static int asteriskRunLength(int bold, int italic, int nextBold, int nextItalic) {
+        if (bold != nextBold) {
+            // Italic is nested inside bold, so it is closed and reopened around the change
+            return italic + 2 * bold + 2 * nextBold + nextItalic;
+        }
+        return italic != nextItalic ? 1 : 0;
+    }
+
+    private static boolean applyTag(String tag, int position,
+                                    int[] open, int[] spanStart, JSONArray spans) {
+        switch (tag) {
+            case "<u>": setLevel(LEVEL_UNDERLINE, 1, position, open, spanStart, spans); return true;
+            case "</u>": setLevel(LEVEL_UNDERLINE, 0, position, open, spanStart, spans); return true;
+            case "</span>": setLevel(LEVEL_COLOR, 0, position, open, spanStart, spans); return true;
+            case "</mark>": setLevel(LEVEL_HIGHLIGHT, 0, position, open, spanStart, spans); return true;
+        }
+
+        int level;
+        if (tag.startsWith(COLOR_OPEN)) {
+            level = LEVEL_COLOR;
+        } else if (tag.startsWith(HIGHLIGHT_OPEN)) {
+            level = LEVEL_HIGHLIGHT;
+        } else {
+            return false;
+        }
+
+        int hexStart = level == LEVEL_COLOR ? COLOR_OPEN.length() : HIGHLIGHT_OPEN.length();
+        if (tag.length() != hexStart + 8 || !tag.endsWith("\">")) return false;
+        int rgb = 0;
+        for (int i = hexStart; i < hexStart + 6; i++) {
+            int digit = Character.digit(tag.charAt(i), 16);
+            if (digit < 0) return false;
+            rgb = (rgb << 4) | digit;
+        }
+        setLevel(level, 0xFF000000 | rgb, position, open, spanStart, spans);
+        return true;
+    }
+
+    /** Changes one level's value at position, ending the span of the previous value if any. */
+    private static void setLevel(int level, int value, int position,
+                                 int[] open, int[] spanStart, JSONArray spans) {
+        if (open[level] == value) return;
+
+        if (open[level] != 0 && spanStart[level] < position) {
+            try {
+                JSONObject span = new JSONObject();
+                span.put("s", spanStart[level]);
+                span.put("e", position);
+                span.put("t", SPAN_TYPES[level]);
+                if (level == LEVEL_COLOR || level == LEVEL_HIGHLIGHT) {
+                    span.put("v", open[level]);
+                }
+                spans.put(span);
+            } catch (JSONException e) {
+                Log.w(TAG, "Could not record span", e);
+            }
+        }
+        open[level] = value;
+        spanStart[level] = position;
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@')
+                || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+}
@@ -0,0 +1,65 @@
+package com.afonso.fiveminutediary.data;
+
+/**
+ * 64-bit FNV-1a hash over the persisted content of an entry.
+ *
+ * <p>Used by {@link DataRepository} to recognise a save whose content is identical to
+ * what was last written, so it can be skipped. Covers text, formatting and image fields;
+ * the timestamp is left out on purpose, since every save refreshes it. A 64-bit hash
+ * makes an accidental collision (and so a skipped real edit) practically impossible.</p>
+ */
+public final class ContentHasher {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    /** Separates fields and marks nulls, so ("ab", null) and ("a", "b") hash differently. */
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final char NULL_MARKER = '\u0001';
+
+    private ContentHasher() {}
+
+    /** Hash of the fields a save writes, excluding the timestamp. */
+    public static long hashOf(DiaryEntry entry) {
+        long hash = OFFSET_BASIS;
+        hash = update(hash, entry.getText());
+        hash = update(hash, entry.getFormatting());
+        hash = update(hash, entry.getImagePath());
+        hash = update(hash, entry.getImageHash());
+        hash = update(hash, entry.getImageWidth());
+        hash = update(hash, entry.getImageHeight());
+        return hash;
+    }
+
+    /** Hash of a single string, e.g. an entry's text or id. */
+    public static long hashOfText(CharSequence text) {
+        return update(OFFSET_BASIS, text);
+    }
+
+    private static long update(long hash, CharSequence value) {
+        if (value == null) {
+            return mix(mix(hash, NULL_MARKER), FIELD_SEPARATOR);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = mix(hash, value.charAt(i));
+        }
+        return mix(hash, FIELD_SEPARATOR);
+    }
+
+    private static long update(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= PRIME;
+        }
+        return mix(hash, FIELD_SEPARATOR);
+    }
+
+    private static long mix(long hash, char c) {
+        // Both bytes of the char, so non-Latin text spreads as well as ASCII does
+        hash ^= c & 0xff;
+        hash *= PRIME;
+        hash ^= c >>> 8;
+        hash *= PRIME;
+        return hash;
+    }
+}
@@ -1,33 +1,71 @@
 package com.afonso.fiveminutediary.data;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.LiveData;
+
+import com.afonso.fiveminutediary.archive.EntryArchive;
+import com.afonso.fiveminutediary.image.ImageGarbageCollector;
+import com.afonso.fiveminutediary.image.ImageImporter;
+import com.afonso.fiveminutediary.image.ImageLoader;
+import com.afonso.fiveminutediary.image.ImageStore;
+import com.afonso.fiveminutediary.search.SearchIndex;
+import com.afonso.fiveminutediary.stats.EntryStats;
+import com.afonso.fiveminutediary.stats.WritingCalendar;
+import com.afonso.fiveminutediary.stats.WritingPatterns;
+import com.afonso.fiveminutediary.utils.DateUtils;
+
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreSettings;
 import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.PersistentCacheSettings;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Singleton that handles all Firestore read/write operations for diary entries
  * and user profiles. Includes an in-memory cache to reduce network calls,
  * automatic retry on write failures, and real-time listeners.
+ *
+ * <p>Entry writes are optimistic: the cache changes as soon as a write is issued and its
+ * callback fires once Firestore has committed it locally, so saving never waits for the
+ * network. The server write is confirmed in the background and rolled back from the cache
+ * if it is finally rejected.</p>
+ *
+ * <p>Only entries from the last {@link #RETENTION_MONTHS} months are queried and listened to
+ * in full. Older entries are held as summaries from {@link EntryArchive} and loaded in full
+ * only when opened, so Firestore's bounded cache can evict their bodies and local queries
+ * cover a window of the same size however old the diary gets.</p>
  */
 public class DataRepository {
 
@@ -45,13 +83,44 @@ public class DataRepository {
     /** Delay in ms between each retry attempt. */
     private static final long RETRY_DELAY_MS = 1000;
 
+    /** Minimum time between two automatic orphaned-image collections. */
+    private static final long IMAGE_GC_INTERVAL_MS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Upper bound of Firestore's on-device cache. Documents beyond it that no listener needs,
+     * such as older entries read by an export or on demand, are evicted least recently used first.
+     */
+    private static final long CACHE_SIZE_BYTES = 20L * 1024 * 1024;
+
+    /**
+     * Months, counting the current one, whose entries are kept in full on the device. Older
+     * entries are kept as summaries.
+     */
+    private static final int RETENTION_MONTHS = 3;
+
+    /** Older entries read per query when the archive is fetched again. */
+    private static final int ARCHIVE_PAGE_SIZE = 200;
+
+    private static final String PREFS_IMAGE_GC = "image_gc";
+    private static final String KEY_LAST_RUN = "last_run";
+
     private static DataRepository instance;
+    private final Context appContext;
     private FirebaseFirestore db;
     private FirebaseAuth auth;
 
+    /** On-device full-text index, updated alongside every entry write and read. */
+    private final SearchIndex searchIndex;
+
+    /** On-device summaries of every entry, the source of entries outside the retention window. */
+    private final EntryArchive archive;
+
     // ─── Cache ───────────────────────────────────────────────────────────────
 
-    /** Local copy of the current user's entries, sorted newest first. */
+    /**
+     * Local copy of the current user's entries, sorted newest first. Entries from before
+     * retentionCutoff are summaries.
+     */
     private List<DiaryEntry> cachedEntries = new ArrayList<>();
 
     /** Local copy of the current user's profile. Null if not yet loaded. */
@@ -63,13 +132,78 @@ public class DataRepository {
     /** True when cachedProfile holds valid data. Set to false after a single-field update to force a refresh. */
     private boolean profileCacheValid = false;
 
+    /**
+     * {@link ContentHasher} hash of each entry's content as last written to or read from
+     * Firestore, by entry id. A write whose hash matches is skipped. Recorded when a write is
+     * issued, since Firestore then owns delivering it, and dropped if it is rejected.
+     */
+    private final Map<String, Long> persistedHashes = new HashMap<>();
+
+    /**
+     * Start of the retention window, in ms; 0 until first needed. Fixed for the session, so
+     * the recent queries and listener agree on which entries they cover.
+     */
+    private long retentionCutoff = 0;
+
+    /** Load of the archived summaries, shared by whichever read needs them first. Null until then. */
+    private Task<List<DiaryEntry>> archiveTask = null;
+
+    /** True when cachedEntries holds the archived summaries as well as the recent entries. */
+    private boolean archiveLoaded = false;
+
+    /**
+     * True once the archive is known to hold every older entry as last written: its count and
+     * update times matched the server's this session, or it was just fetched again. Only then may a missing entry be taken as
+     * deleted, by the search index and image collection.
+     */
+    private boolean archiveVerified = false;
+
+    /** In-progress check of the archive against the server, and refetch if needed. Null when none is running. */
+    private Task<Void> archiveCheckTask = null;
+
+    /** Words per day of cachedEntries, by year. Updated with every change to the cache. */
+    private final WritingCalendar writingCalendar = new WritingCalendar();
+
+    /**
+     * Result of {@link #prefetchEntryForDay(int)}, reused by getEntryForDay for the same day
+     * while the full entry cache isn't loaded. Cleared when entries are added or deleted.
+     */
+    private Task<DiaryEntry> prefetchedDayTask = null;
+    private int prefetchedDay;
+
+    /** Session hour of the last save recordWrite counted; saves in the same hour skip the profile read. */
+    private long lastSessionHour = Long.MIN_VALUE;
+
+    /** Draft shared by the screens editing today's entry. Null until one asks for it. */
+    private EditingSession editingSession = null;
+
     // ─── Real-time listeners ─────────────────────────────────────────────────
 
-    /** Registration handle for the entries snapshot listener. Null when inactive. */
-    private ListenerRegistration entriesListener = null;
+    /**
+     * How long a shared listener stays attached after its last subscriber leaves. Covers the
+     * gap between one screen's onPause and the next one's onResume when swiping between them.
+     */
+    private static final long LISTENER_LINGER_MS = 5000;
+
+    /** Entries snapshot listener, shared by every screen that subscribes. */
+    private final SharedListener<List<DiaryEntry>> entriesListener;
 
-    /** Registration handle for the profile snapshot listener. Null when inactive. */
-    private ListenerRegistration profileListener = null;
+    /** Profile snapshot listener, shared by every screen that subscribes. */
+    private final SharedListener<UserProfile> profileListener;
+
+    // ─── Observable state ────────────────────────────────────────────────────
+
+    /** cachedEntries as last published; an unmodifiable copy. */
+    private final SyncedLiveData<List<DiaryEntry>> entriesLiveData;
+
+    /** Today's entry from cachedEntries, or null if there is none yet. */
+    private final SyncedLiveData<DiaryEntry> todayEntryLiveData;
+
+    /** Entry count and streak of cachedEntries. */
+    private final SyncedLiveData<EntryStats> statsLiveData;
+
+    /** cachedProfile as last published. */
+    private final SyncedLiveData<UserProfile> profileLiveData;
 
     // ─── Write lock ──────────────────────────────────────────────────────────
 
@@ -82,6 +216,12 @@ public class DataRepository {
     /** True while a save operation is in progress. Guarded by saveLock. */
     private boolean isSaving = false;
 
+    /** Latest save requested while another was in progress; runs when it finishes. Guarded by saveLock. */
+    private Runnable pendingSave = null;
+
+    /** Listener of pendingSave, completed without writing if a newer call replaces it. Guarded by saveLock. */
+    private OnCompleteListener<Void> pendingSaveListener = null;
+
     // ─── Lifecycle ───────────────────────────────────────────────────────────
 
     /**
@@ -90,8 +230,17 @@ public class DataRepository {
      * @param context application context (avoids memory leaks in the singleton)
      */
     private DataRepository(Context context) {
+        appContext = context;
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        searchIndex = SearchIndex.getInstance(context);
+        archive = EntryArchive.getInstance(context);
+        entriesListener = new SharedListener<>("Entries", LISTENER_LINGER_MS, this::attachEntriesListener);
+        profileListener = new SharedListener<>("Profile", LISTENER_LINGER_MS, this::attachProfileListener);
+        entriesLiveData = new SyncedLiveData<>(entriesListener, null);
+        todayEntryLiveData = new SyncedLiveData<>(entriesListener, this::refreshTodayEntry);
+        statsLiveData = new SyncedLiveData<>(entriesListener, null);
+        profileLiveData = new SyncedLiveData<>(profileListener, null);
         enableOfflinePersistence();
     }
 
@@ -111,14 +260,17 @@ public class DataRepository {
     // ─── Configuration ───────────────────────────────────────────────────────
 
     /**
-     * Enables Firestore offline persistence with unlimited cache size.
+     * Enables Firestore offline persistence with a cache of {@link #CACHE_SIZE_BYTES}.
      * All reads and writes work without a network connection and sync automatically when online.
+     * The entries listener only covers the retention window, so the entries kept in the cache
+     * stay within a few months' worth and older ones can be evicted.
      */
     private void enableOfflinePersistence() {
         try {
             FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
-                    .setPersistenceEnabled(true)
-                    .setCacheSizeBytes(FirebaseFirestoreSettings.CACHE_SIZE_UNLIMITED)
+                    .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                            .setSizeBytes(CACHE_SIZE_BYTES)
+                            .build())
                     .build();
             db.setFirestoreSettings(settings);
             Log.d(TAG, "Offline persistence enabled");
@@ -146,19 +298,44 @@ public class DataRepository {
         cachedProfile = null;
         entriesCacheValid = false;
         profileCacheValid = false;
-
-        if (entriesListener != null) {
-            entriesListener.remove();
-            entriesListener = null;
-        }
-        if (profileListener != null) {
-            profileListener.remove();
-            profileListener = null;
+        editingSession = null;
+        prefetchedDayTask = null;
+        persistedHashes.clear();
+        writingCalendar.clear();
+        searchIndex.clear();
+        archive.clear();
+        forgetArchive();
+        retentionCutoff = 0;
+        lastSessionHour = Long.MIN_VALUE;
+        synchronized (saveLock) {
+            pendingSave = null;
+            pendingSaveListener = null;
         }
 
+        entriesListener.close();
+        profileListener.close();
+
+        entriesLiveData.setValue(Collections.emptyList());
+        todayEntryLiveData.setValue(null);
+        statsLiveData.setValue(EntryStats.EMPTY);
+        profileLiveData.setValue(null);
+
         Log.d(TAG, "Cache cleared");
     }
 
+    /**
+     * Fills the entry cache as a full load would, without Firestore. JVM tests open the
+     * screens against it, since they can't sign in.
+     *
+     * @param entries every entry, newest first
+     */
+    @VisibleForTesting
+    void setCachedEntriesForTesting(List<DiaryEntry> entries) {
+        cachedEntries = new ArrayList<>(entries);
+        entriesCacheValid = true;
+        writingCalendar.rebuild(cachedEntries);
+    }
+
     // ========== DIARY ENTRIES ==========
 
     /**
@@ -166,7 +343,9 @@ public class DataRepository {
      *
      * <p>Checks whether an entry already exists for today. If it does, updates it;
      * otherwise creates a new one. Uses saveLock to prevent duplicate entries when
-     * auto-save and manual save fire at the same time.</p>
+     * auto-save and manual save fire at the same time: a call made while a save is in
+     * progress replaces any earlier waiting call and runs once the current save finishes,
+     * so the newest text is never dropped.</p>
      *
      * @param text        plain text content of the entry
      * @param formatting  serialised formatting data (from TextFormattingSerializer); can be null
@@ -180,45 +359,88 @@ public class DataRepository {
             return;
         }
 
+        boolean queued;
+        OnCompleteListener<Void> superseded = null;
         synchronized (saveLock) {
-            if (isSaving) {
-                // A save is already in progress — skip this call
-                if (listener != null) listener.onComplete(null);
-                return;
+            queued = isSaving;
+            if (queued) {
+                // A save is already in progress; only the newest text needs to be written after it
+                superseded = pendingSaveListener;
+                pendingSave = () -> saveOrUpdateTodayEntry(text, formatting, listener);
+                pendingSaveListener = listener;
+            } else {
+                isSaving = true;
             }
-            isSaving = true;
+        }
+        if (queued) {
+            if (superseded != null) superseded.onComplete(null);
+            return;
         }
 
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-
-        getEntryForDay(today, existingEntry -> {
+        getEntryForDay(DateUtils.today(), existingEntry -> {
             if (existingEntry != null) {
+                if (text.equals(existingEntry.getText())
+                        && Objects.equals(formatting, existingEntry.getFormatting())
+                        && isPersisted(existingEntry)) {
+                    // Nothing changed since the last write; keep the stored timestamp too
+                    Log.d(TAG, "Entry unchanged, skipping save: " + existingEntry.getId());
+                    finishSave();
+                    if (listener != null) listener.onComplete(null);
+                    return;
+                }
                 existingEntry.setText(text);
                 existingEntry.setFormatting(formatting);
                 existingEntry.setTimestamp(System.currentTimeMillis());
-                updateEntryWithRetry(existingEntry, 0, task -> {
-                    synchronized (saveLock) { isSaving = false; }
+                updateEntry(existingEntry, task -> {
+                    finishSave();
                     if (listener != null) listener.onComplete(task);
                 });
             } else {
                 DiaryEntry newEntry = new DiaryEntry(null, userId, System.currentTimeMillis(), text, null, formatting);
-                addEntryWithRetry(newEntry, 0, task -> {
-                    synchronized (saveLock) { isSaving = false; }
+                addEntry(newEntry, task -> {
+                    finishSave();
                     if (listener != null) listener.onComplete(task);
                 });
             }
         });
     }
 
+    /** Releases the save lock and starts the save that was waiting for it, if any. */
+    private void finishSave() {
+        Runnable next;
+        synchronized (saveLock) {
+            isSaving = false;
+            next = pendingSave;
+            pendingSave = null;
+            pendingSaveListener = null;
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    /**
+     * Returns the editing session for the given day, creating it if needed. A session for
+     * an earlier day is discarded, so only one draft is kept in memory.
+     *
+     * @param day the day being edited, as a {@link DateUtils} epoch day
+     * @return the shared session; never null
+     */
+    public EditingSession getEditingSession(int day) {
+        if (editingSession == null || editingSession.getDay() != day) {
+            editingSession = new EditingSession(day);
+        }
+        return editingSession;
+    }
+
     /**
-     * Adds a new entry to Firestore with automatic retry on failure.
-     * On success, inserts the entry at the beginning of the local cache.
+     * Adds a new entry. Its id is generated locally and it goes into the cache right away;
+     * the server write is confirmed in the background.
      *
-     * @param entry      the entry to add; its id will be set by Firestore after success
-     * @param retryCount current attempt number (0 on first call)
-     * @param listener   callback when done; can be null
+     * @param entry    the entry to add; its id is set before this returns
+     * @param listener callback once the write is committed to Firestore's local cache; can be null
      */
-    private void addEntryWithRetry(DiaryEntry entry, int retryCount, OnCompleteListener<Void> listener) {
+    private void addEntry(DiaryEntry entry, OnCompleteListener<Void> listener) {
         String userId = getCurrentUserId();
         if (userId == null) {
             Log.e(TAG, "User not logged in");
@@ -231,63 +453,133 @@ public class DataRepository {
             entry.setTimestamp(System.currentTimeMillis());
         }
 
-        db.collection(COLLECTION_ENTRIES)
-                .add(entry.toMap())
-                .addOnSuccessListener(documentReference -> {
-                    entry.setId(documentReference.getId());
-                    cachedEntries.add(0, entry);
-                    entriesCacheValid = true;
-                    Log.d(TAG, "Entry added: " + entry.getId());
-                    if (listener != null) listener.onComplete(null);
+        DocumentReference ref = db.collection(COLLECTION_ENTRIES).document();
+        entry.setId(ref.getId());
+        entry.setUpdatedAt(System.currentTimeMillis());
+        Map<String, Object> data = entry.toMap();
+        long hash = ContentHasher.hashOf(entry);
+        persistedHashes.put(entry.getId(), hash);
+        confirmWithRetry(ref, data, hash, ref.set(data), 0, null, null);
+
+        prefetchedDayTask = null;
+        cachedEntries.add(0, entry);
+        entriesCacheValid = true;
+        writingCalendar.put(entry);
+        searchIndex.index(entry);
+        archive.put(entry);
+        recordWrite(entry.getTimestamp());
+        publishEntries();
+        Log.d(TAG, "Entry added: " + entry.getId());
+        resolveOnLocalCommit(ref, listener);
+    }
+
+    /**
+     * Calls the listener once a write just issued on ref is in Firestore's local cache.
+     * Firestore applies writes and cache reads in the order they are issued, so a cache read
+     * of the same document completes only after the write. Unlike the write's own task, this
+     * doesn't wait for the server, which offline may be never.
+     */
+    private void resolveOnLocalCommit(DocumentReference ref, OnCompleteListener<Void> listener) {
+        if (listener == null) return;
+        ref.get(Source.CACHE).addOnCompleteListener(task -> listener.onComplete(null));
+    }
+
+    /**
+     * Waits for the server to accept an entry write that is already applied locally, and
+     * sends it again on failure. A retry is dropped once a newer write of the same entry has
+     * been issued, since that one carries the full content. If the last attempt fails, the
+     * cached entry is rolled back to what Firestore holds.
+     *
+     * @param ref         the entry's document
+     * @param data        the fields written
+     * @param hash        {@link ContentHasher} hash of the written content
+     * @param write       the pending write
+     * @param retryCount  current attempt number (0 on first call)
+     * @param onConfirmed run once the server accepts the write; can be null
+     * @param onRejected  run if the last attempt fails, before the rollback; can be null.
+     *                    Neither runs for a write dropped in favour of a newer one
+     */
+    private void confirmWithRetry(DocumentReference ref, Map<String, Object> data, long hash,
+                                  Task<Void> write, int retryCount,
+                                  Runnable onConfirmed, Runnable onRejected) {
+        write.addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Entry write confirmed: " + ref.getId());
+                    if (onConfirmed != null) onConfirmed.run();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to add entry (attempt " + (retryCount + 1) + ")", e);
-                    if (retryCount < MAX_RETRIES) {
-                        new android.os.Handler(android.os.Looper.getMainLooper())
-                                .postDelayed(() -> addEntryWithRetry(entry, retryCount + 1, listener), RETRY_DELAY_MS);
+                    Log.e(TAG, "Failed to write entry (attempt " + (retryCount + 1) + ")", e);
+                    if (!isLatestWrite(ref.getId(), hash)) {
+                        Log.d(TAG, "Entry written again since, not retrying: " + ref.getId());
+                    } else if (retryCount < MAX_RETRIES) {
+                        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
+                            // Checked again: a save during the delay must not be overwritten
+                            if (isLatestWrite(ref.getId(), hash)) {
+                                confirmWithRetry(ref, data, hash, ref.set(data, SetOptions.merge()),
+                                        retryCount + 1, onConfirmed, onRejected);
+                            }
+                        }, RETRY_DELAY_MS);
                     } else {
-                        Log.e(TAG, "Failed to add entry after " + MAX_RETRIES + " attempts");
-                        if (listener != null) listener.onComplete(null);
+                        Log.e(TAG, "Failed to write entry after " + MAX_RETRIES + " attempts");
+                        if (onRejected != null) onRejected.run();
+                        reconcileEntry(ref.getId());
                     }
                 });
     }
 
+    /** True if hash is the content most recently written for the entry. */
+    private boolean isLatestWrite(String id, long hash) {
+        return Long.valueOf(hash).equals(persistedHashes.get(id));
+    }
+
     /**
-     * Updates an existing entry in Firestore with automatic retry on failure.
-     * Uses merge so only the provided fields are written.
-     * On success, updates the matching entry in the local cache.
-     *
-     * @param entry      the entry with updated data; must have a valid id
-     * @param retryCount current attempt number (0 on first call)
-     * @param listener   callback when done; can be null
+     * Rolls back an entry whose write or delete was finally rejected. Firestore has dropped
+     * the rejected write from its local cache by then, so the document read now is the last
+     * version it accepted, or nothing if the entry was never created.
      */
-    private void updateEntryWithRetry(DiaryEntry entry, int retryCount, OnCompleteListener<Void> listener) {
-        if (entry.getId() == null) {
-            Log.e(TAG, "Entry ID is null");
-            if (listener != null) listener.onComplete(null);
-            return;
-        }
-
+    private void reconcileEntry(String id) {
         db.collection(COLLECTION_ENTRIES)
-                .document(entry.getId())
-                .set(entry.toMap(), SetOptions.merge())
-                .addOnSuccessListener(aVoid -> {
-                    updateCachedEntry(entry);
-                    Log.d(TAG, "Entry updated: " + entry.getId());
-                    if (listener != null) listener.onComplete(null);
+                .document(id)
+                .get()
+                .addOnSuccessListener(document -> {
+                    removeCachedEntry(id);
+                    persistedHashes.remove(id);
+                    writingCalendar.remove(id);
+                    searchIndex.remove(id);
+                    archive.remove(id);
+                    if (document.exists()) {
+                        DiaryEntry entry = document.toObject(DiaryEntry.class);
+                        entry.setId(id);
+                        insertCachedEntry(entry);
+                        rememberPersisted(entry);
+                        writingCalendar.put(entry);
+                        searchIndex.index(entry);
+                        archive.put(entry);
+                    }
+                    prefetchedDayTask = null;
+                    publishEntries();
+                    Log.w(TAG, "Entry rolled back: " + id);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update entry (attempt " + (retryCount + 1) + ")", e);
-                    if (retryCount < MAX_RETRIES) {
-                        new android.os.Handler(android.os.Looper.getMainLooper())
-                                .postDelayed(() -> updateEntryWithRetry(entry, retryCount + 1, listener), RETRY_DELAY_MS);
-                    } else {
-                        Log.e(TAG, "Failed to update entry after " + MAX_RETRIES + " attempts");
-                        if (listener != null) listener.onComplete(null);
-                    }
+                    // The cache can't be trusted for this entry; the next fetch or snapshot corrects it
+                    Log.e(TAG, "Failed to roll back entry: " + id, e);
+                    persistedHashes.remove(id);
+                    entriesCacheValid = false;
                 });
     }
 
+    /** True if the entry's content is exactly what was last written to or read from Firestore. */
+    private boolean isPersisted(DiaryEntry entry) {
+        Long persisted = persistedHashes.get(entry.getId());
+        return persisted != null && persisted == ContentHasher.hashOf(entry);
+    }
+
+    /** Records a freshly read entry as persisted content. */
+    private void rememberPersisted(DiaryEntry entry) {
+        if (entry.getId() != null) {
+            persistedHashes.put(entry.getId(), ContentHasher.hashOf(entry));
+        }
+    }
+
     /**
      * Replaces the cached copy of an entry with the given updated version,
      * matched by id. Does nothing if the entry is not in the cache.
@@ -296,28 +588,108 @@ public class DataRepository {
         for (int i = 0; i < cachedEntries.size(); i++) {
             if (cachedEntries.get(i).getId() != null &&
                     cachedEntries.get(i).getId().equals(entry.getId())) {
-                cachedEntries.set(i, entry);
+                cachedEntries.set(i, retained(entry));
                 return;
             }
         }
     }
 
+    /** What the cache keeps of an entry: the entry itself in the retention window, its summary before it. */
+    private DiaryEntry retained(DiaryEntry entry) {
+        return entry.getTimestamp() >= retentionCutoff() ? entry : EntryArchive.summaryOf(entry);
+    }
+
+    /** Removes the cached copy of an entry, matched by id. Does nothing if it is not cached. */
+    private void removeCachedEntry(String id) {
+        for (int i = 0; i < cachedEntries.size(); i++) {
+            if (id.equals(cachedEntries.get(i).getId())) {
+                cachedEntries.remove(i);
+                return;
+            }
+        }
+    }
+
+    /** Inserts an entry into the cache at its place in newest-first order. */
+    private void insertCachedEntry(DiaryEntry entry) {
+        int index = 0;
+        while (index < cachedEntries.size() && cachedEntries.get(index).getTimestamp() > entry.getTimestamp()) {
+            index++;
+        }
+        cachedEntries.add(index, retained(entry));
+    }
+
     /**
-     * Public method to update an existing entry. Used by detail/edit activities.
+     * Updates an existing entry. Uses merge so only the provided fields are written.
+     * The cached copy is replaced right away; the server write is confirmed in the background.
      *
      * @param entry    the entry with updated data; must have a valid id
-     * @param listener callback when done; can be null
+     * @param listener callback once the write is committed to Firestore's local cache; can be null
      */
     public void updateEntry(DiaryEntry entry, OnCompleteListener<Void> listener) {
-        updateEntryWithRetry(entry, 0, listener);
+        updateEntry(entry, listener, null, null);
+    }
+
+    /**
+     * Updates an entry whose image was replaced or removed, like {@link #updateEntry}. Image
+     * references follow the write: the previous image is released only once the server
+     * accepts it, so a rollback finds that image still on disk; if the write is finally
+     * rejected, the reference held for the new image is released instead. A write superseded
+     * by a newer save releases neither; {@link #collectOrphanedImages} reclaims what that leaves.
+     *
+     * @param entry    the entry with its new image, if any; the caller already holds a reference
+     *                 to it, e.g. the one {@link ImageStore.StoredImage} came with
+     * @param previous the entry as it was before the change
+     * @param listener callback once the write is committed to Firestore's local cache; can be null
+     */
+    public void updateEntryImage(DiaryEntry entry, DiaryEntry previous, OnCompleteListener<Void> listener) {
+        String newHash = entry.getImageHash();
+        boolean hashChanged = newHash != null && !newHash.equals(previous.getImageHash());
+        updateEntry(entry, listener,
+                () -> releaseReplacedImage(previous, entry),
+                hashChanged ? () -> ImageStore.getInstance(appContext).release(newHash) : null);
+    }
+
+    private void updateEntry(DiaryEntry entry, OnCompleteListener<Void> listener,
+                             Runnable onConfirmed, Runnable onRejected) {
+        if (entry.getId() == null) {
+            Log.e(TAG, "Entry ID is null");
+            if (listener != null) listener.onComplete(null);
+            return;
+        }
+
+        // Hash what is sent, not the entry later: callers may keep editing it meanwhile
+        long hash = ContentHasher.hashOf(entry);
+        if (isLatestWrite(entry.getId(), hash)) {
+            Log.d(TAG, "Entry unchanged, skipping update: " + entry.getId());
+            updateCachedEntry(entry);
+            if (listener != null) listener.onComplete(null);
+            return;
+        }
+
+        DocumentReference ref = db.collection(COLLECTION_ENTRIES).document(entry.getId());
+        entry.setUpdatedAt(System.currentTimeMillis());
+        Map<String, Object> data = entry.toMap();
+        persistedHashes.put(entry.getId(), hash);
+        confirmWithRetry(ref, data, hash, ref.set(data, SetOptions.merge()), 0, onConfirmed, onRejected);
+
+        updateCachedEntry(entry);
+        writingCalendar.put(entry);
+        searchIndex.index(entry);
+        archive.put(entry);
+        recordWrite(System.currentTimeMillis());
+        publishEntries();
+        Log.d(TAG, "Entry updated: " + entry.getId());
+        resolveOnLocalCommit(ref, listener);
     }
 
     /**
      * Returns all diary entries for the current user, sorted newest first.
-     * Returns from cache if available; otherwise fetches from Firestore and updates the cache.
+     * Returns from cache if available; otherwise fetches the retention window from Firestore,
+     * adds the archived summaries of older entries and updates the cache.
      * On network failure, falls back to the current cache contents.
      *
-     * @param listener callback that receives the list of entries (empty list if none)
+     * @param listener callback that receives the list of entries (empty list if none); entries
+     *                 before the retention window are summaries
      */
     public void getEntries(OnSuccessListener<List<DiaryEntry>> listener) {
         String userId = getCurrentUserId();
@@ -328,94 +700,172 @@ public class DataRepository {
         }
 
         // Return cache if valid
-        if (entriesCacheValid && !cachedEntries.isEmpty()) {
+        if (entriesCacheValid && archiveLoaded && !cachedEntries.isEmpty()) {
             Log.d(TAG, "Returning cached entries: " + cachedEntries.size());
             listener.onSuccess(new ArrayList<>(cachedEntries));
             return;
         }
 
-        // Fetch from Firestore
-        db.collection(COLLECTION_ENTRIES)
+        // Fetch the retention window from Firestore while the summaries load from disk
+        Task<QuerySnapshot> recentTask = recentEntriesQuery(userId).get();
+        Task<List<DiaryEntry>> archived = loadArchive();
+        Tasks.whenAllComplete(recentTask, archived).addOnSuccessListener(done -> {
+            if (!recentTask.isSuccessful()) {
+                Log.e(TAG, "Error getting entries", recentTask.getException());
+                listener.onSuccess(new ArrayList<>(cachedEntries));
+                return;
+            }
+
+            List<DiaryEntry> recent = new ArrayList<>();
+            for (QueryDocumentSnapshot document : recentTask.getResult()) {
+                DiaryEntry entry = document.toObject(DiaryEntry.class);
+                entry.setId(document.getId());
+                rememberPersisted(entry);
+                recent.add(entry);
+            }
+            addArchive(archived);
+            List<DiaryEntry> entries = withArchived(recent);
+            cachedEntries = entries;
+            entriesCacheValid = true;
+            writingCalendar.rebuild(entries);
+            syncSearchIndex(entries);
+            archive.put(recent);
+            publishEntries();
+            Log.d(TAG, "Loaded " + recent.size() + " recent and " + (entries.size() - recent.size())
+                    + " archived entries");
+            listener.onSuccess(entries);
+            verifyArchive();
+        });
+    }
+
+    /** The current user's entries in the retention window, newest first. */
+    private Query recentEntriesQuery(String userId) {
+        return db.collection(COLLECTION_ENTRIES)
                 .whereEqualTo("userId", userId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .whereGreaterThanOrEqualTo("timestamp", retentionCutoff())
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Returns the cached entry with the given id, or null if it isn't in memory in full.
+     * Lets screens opened by id render synchronously in the common case.
+     *
+     * @param id Firestore document id
+     */
+    public DiaryEntry getCachedEntry(String id) {
+        DiaryEntry entry = findCachedEntry(id);
+        return entry != null && entry.hasFullText() ? entry : null;
+    }
+
+    /** The cached entry or summary with the given id, or null. */
+    private DiaryEntry findCachedEntry(String id) {
+        if (id == null) return null;
+        for (DiaryEntry entry : cachedEntries) {
+            if (id.equals(entry.getId())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entry with the given id, or null if it doesn't exist.
+     *
+     * <p>Checks the in-memory cache first; otherwise reads the document, which Firestore
+     * serves from its local cache when offline. An entry held only as a summary is read in
+     * full this way, and its summary refreshed from it.</p>
+     *
+     * @param id       Firestore document id
+     * @param listener callback that receives the entry, or null if not found
+     */
+    public void getEntryById(String id, OnSuccessListener<DiaryEntry> listener) {
+        DiaryEntry cached = getCachedEntry(id);
+        if (cached != null) {
+            listener.onSuccess(cached);
+            return;
+        }
+        if (id == null) {
+            listener.onSuccess(null);
+            return;
+        }
+
+        db.collection(COLLECTION_ENTRIES)
+                .document(id)
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<DiaryEntry> entries = new ArrayList<>();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        DiaryEntry entry = document.toObject(DiaryEntry.class);
+                .addOnSuccessListener(document -> {
+                    if (!document.exists()) {
+                        listener.onSuccess(null);
+                        return;
+                    }
+                    DiaryEntry entry = document.toObject(DiaryEntry.class);
+                    if (entry != null) {
                         entry.setId(document.getId());
-                        entries.add(entry);
+                        rememberPersisted(entry);
+                        refreshSummary(entry);
                     }
-                    cachedEntries = entries;
-                    entriesCacheValid = true;
-                    Log.d(TAG, "Loaded " + entries.size() + " entries");
-                    listener.onSuccess(entries);
+                    listener.onSuccess(entry);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting entries", e);
-                    listener.onSuccess(new ArrayList<>(cachedEntries));
+                    Log.e(TAG, "Error getting entry " + id, e);
+                    listener.onSuccess(null);
                 });
     }
 
+    /**
+     * Brings the summary of an archived entry up to date with its full version, which may
+     * have been edited on another device since the summary was taken.
+     */
+    private void refreshSummary(DiaryEntry entry) {
+        DiaryEntry cached = findCachedEntry(entry.getId());
+        if (cached == null || cached.hasFullText()) return;
+        DiaryEntry summary = EntryArchive.summaryOf(entry);
+        if (summary.contentHash() == cached.contentHash()) return;
+
+        updateCachedEntry(entry);
+        writingCalendar.put(entry);
+        searchIndex.index(entry);
+        archive.put(entry);
+        publishEntries();
+    }
+
     /**
      * Returns the diary entry for a specific day, or null if none exists.
      *
      * <p>First checks the local cache. If not found there (or cache is invalid),
-     * queries Firestore using a timestamp range covering the full day (00:00:00 to 23:59:59).</p>
+     * queries Firestore for timestamps in [start of day, start of next day).</p>
      *
-     * @param day      the target day in "yyyy-MM-dd" format
+     * @param day      the target day, as a {@link DateUtils} epoch day
      * @param listener callback that receives the entry, or null if not found
      */
-    public void getEntryForDay(String day, OnSuccessListener<DiaryEntry> listener) {
+    public void getEntryForDay(int day, OnSuccessListener<DiaryEntry> listener) {
         String userId = getCurrentUserId();
         if (userId == null) {
             listener.onSuccess(null);
             return;
         }
 
-        // Check cache first
+        // Check cache first; a summary doesn't do, the caller needs the full entry
         if (entriesCacheValid) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                for (DiaryEntry entry : cachedEntries) {
-                    String entryDay = sdf.format(new Date(entry.getTimestamp()));
-                    if (entryDay.equals(day)) {
-                        Log.d(TAG, "Entry found in cache for " + day);
-                        listener.onSuccess(entry);
-                        return;
-                    }
+            for (DiaryEntry entry : cachedEntries) {
+                if (DateUtils.epochDay(entry.getTimestamp()) == day && entry.hasFullText()) {
+                    Log.d(TAG, "Entry found in cache for day " + day);
+                    listener.onSuccess(entry);
+                    return;
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error checking cache", e);
             }
         }
 
-        // Fetch from Firestore
-        Calendar cal = Calendar.getInstance();
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            cal.setTime(sdf.parse(day));
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing date", e);
-            listener.onSuccess(null);
+        // Reuse a startup prefetch, whether it has finished or not
+        if (prefetchedDayTask != null && prefetchedDay == day) {
+            prefetchedDayTask.addOnSuccessListener(listener);
             return;
         }
 
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long startOfDay = cal.getTimeInMillis();
-
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        long endOfDay = cal.getTimeInMillis();
-
+        // Fetch from Firestore
         db.collection(COLLECTION_ENTRIES)
                 .whereEqualTo("userId", userId)
-                .whereGreaterThanOrEqualTo("timestamp", startOfDay)
-                .whereLessThanOrEqualTo("timestamp", endOfDay)
+                .whereGreaterThanOrEqualTo("timestamp", DateUtils.startOfDay(day))
+                .whereLessThan("timestamp", DateUtils.endOfDayExclusive(day))
                 .limit(1)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
@@ -424,6 +874,9 @@ public class DataRepository {
                         DiaryEntry entry = document.toObject(DiaryEntry.class);
                         if (entry != null) {
                             entry.setId(document.getId());
+                            if (!document.getMetadata().hasPendingWrites()) {
+                                rememberPersisted(entry);
+                            }
                         }
                         listener.onSuccess(entry);
                     } else {
@@ -437,8 +890,23 @@ public class DataRepository {
     }
 
     /**
-     * Deletes a single entry from Firestore and removes it from the local cache.
-     * The cache remains valid after removal.
+     * Starts loading the entry for a day ahead of the screen that needs it. A later
+     * getEntryForDay call for the same day attaches to this load instead of querying again.
+     *
+     * @param day the day to load, as a {@link DateUtils} epoch day
+     */
+    public void prefetchEntryForDay(int day) {
+        TaskCompletionSource<DiaryEntry> source = new TaskCompletionSource<>();
+        getEntryForDay(day, source::setResult);
+        // Set after the lookup so it doesn't attach to itself
+        prefetchedDay = day;
+        prefetchedDayTask = source.getTask();
+    }
+
+    /**
+     * Deletes a single entry from Firestore and removes it from the local cache right away.
+     * The cache remains valid after removal. Its image is released only once the server has
+     * confirmed the delete, so an entry restored by a rollback still has it.
      *
      * @param entry    the entry to delete; must have a valid id
      * @param listener callback when done; can be null
@@ -450,75 +918,494 @@ public class DataRepository {
             return;
         }
 
-        db.collection(COLLECTION_ENTRIES)
-                .document(entry.getId())
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    cachedEntries.remove(entry);
-                    entriesCacheValid = true;
-                    Log.d(TAG, "Entry deleted: " + entry.getId());
-                    if (listener != null) listener.onComplete(null);
+        DocumentReference ref = db.collection(COLLECTION_ENTRIES).document(entry.getId());
+        confirmDeleteWithRetry(ref, entry, ref.delete(), 0);
+
+        removeCachedEntry(entry.getId());
+        persistedHashes.remove(entry.getId());
+        prefetchedDayTask = null;
+        entriesCacheValid = true;
+        writingCalendar.remove(entry.getId());
+        searchIndex.remove(entry.getId());
+        archive.remove(entry.getId());
+        publishEntries();
+        Log.d(TAG, "Entry deleted: " + entry.getId());
+        resolveOnLocalCommit(ref, listener);
+    }
+
+    /**
+     * Waits for the server to accept a delete that is already applied locally, and sends it
+     * again on failure. If the last attempt fails, the entry is restored in the cache.
+     */
+    private void confirmDeleteWithRetry(DocumentReference ref, DiaryEntry entry, Task<Void> delete, int retryCount) {
+        delete.addOnSuccessListener(aVoid -> {
+                    releaseImage(entry);
+                    Log.d(TAG, "Entry delete confirmed: " + ref.getId());
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error deleting entry", e);
-                    if (listener != null) listener.onComplete(null);
+                    Log.e(TAG, "Error deleting entry (attempt " + (retryCount + 1) + ")", e);
+                    if (retryCount < MAX_RETRIES) {
+                        new android.os.Handler(android.os.Looper.getMainLooper())
+                                .postDelayed(() -> confirmDeleteWithRetry(ref, entry, ref.delete(), retryCount + 1), RETRY_DELAY_MS);
+                    } else {
+                        Log.e(TAG, "Failed to delete entry after " + MAX_RETRIES + " attempts");
+                        reconcileEntry(ref.getId());
+                    }
                 });
     }
 
-    // ─── Real-time listeners ─────────────────────────────────────────────────
+    // ─── Image cleanup ───────────────────────────────────────────────────────
 
     /**
-     * Starts a real-time listener on the entries collection.
-     * The callback fires automatically whenever entries are added, updated, or deleted.
-     * Replaces any previously active entries listener.
+     * Drops a deleted entry's reference to its image. Stored images are released by hash
+     * and deleted by {@link ImageStore} once unreferenced; legacy per-entry files are deleted.
+     */
+    private void releaseImage(DiaryEntry entry) {
+        if (entry.getImageHash() != null) {
+            ImageStore.getInstance(appContext).release(entry.getImageHash());
+        }
+        if (entry.getImagePath() != null) {
+            ImageLoader.getInstance(appContext).invalidateImage(entry.getImagePath());
+            ImageImporter.deleteImage(entry.getImagePath());
+        }
+    }
+
+    /**
+     * Drops the references of an entry's previous image once its replacement is confirmed.
+     * Nothing is released for an image the entry still uses.
+     */
+    private void releaseReplacedImage(DiaryEntry previous, DiaryEntry entry) {
+        String hash = previous.getImageHash();
+        if (hash != null && !hash.equals(entry.getImageHash())) {
+            ImageStore.getInstance(appContext).release(hash);
+        }
+        String path = previous.getImagePath();
+        if (path != null && !path.equals(entry.getImagePath())) {
+            ImageLoader.getInstance(appContext).invalidateImage(path);
+            ImageImporter.deleteImage(path);
+        }
+    }
+
+    /**
+     * Deletes image files that no entry references, e.g. left behind by entries deleted on
+     * another device or before images were released on delete.
      *
-     * @param listener callback that receives the full updated entry list on each change
+     * @param callback receives the number of files deleted and bytes reclaimed; can be null
      */
-    public void startEntriesListener(OnSuccessListener<List<DiaryEntry>> listener) {
-        String userId = getCurrentUserId();
-        if (userId == null) {
-            Log.e(TAG, "User not logged in, cannot start listener");
+    public void collectOrphanedImages(ImageGarbageCollector.Callback callback) {
+        getEntries(entries -> {
+            if (!entriesCacheValid || !archiveVerified) {
+                // A fallback list, or one whose older entries aren't confirmed; it may be missing references
+                Log.w(TAG, "Skipping image collection, entries not loaded");
+                if (callback != null) callback.onCollected(0, 0);
+                return;
+            }
+            recordImageCollection();
+            new ImageGarbageCollector(appContext).collect(entries, callback);
+        });
+    }
+
+    /** Runs a collection against a complete entry list, at most once per day. */
+    private void maybeCollectOrphanedImages(List<DiaryEntry> entries) {
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_IMAGE_GC, Context.MODE_PRIVATE);
+        if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_RUN, 0) < IMAGE_GC_INTERVAL_MS) {
             return;
         }
+        recordImageCollection();
+        new ImageGarbageCollector(appContext).collect(entries, null);
+    }
 
-        if (entriesListener != null) {
-            entriesListener.remove();
+    private void recordImageCollection() {
+        appContext.getSharedPreferences(PREFS_IMAGE_GC, Context.MODE_PRIVATE)
+                .edit()
+                .putLong(KEY_LAST_RUN, System.currentTimeMillis())
+                .apply();
+    }
+
+    // ─── Real-time listeners ─────────────────────────────────────────────────
+
+    /**
+     * Attaches the Firestore listener behind {@link #observeEntries()}. Only the retention
+     * window is listened to; the list continues with the archived summaries of older entries.
+     */
+    private ListenerRegistration attachEntriesListener(SharedListener<List<DiaryEntry>> target) {
+        String userId = getCurrentUserId();
+        if (userId == null) {
+            Log.e(TAG, "User not logged in, cannot start listener");
+            return null;
         }
 
-        entriesListener = db.collection(COLLECTION_ENTRIES)
-                .whereEqualTo("userId", userId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
+        return recentEntriesQuery(userId)
                 .addSnapshotListener((queryDocumentSnapshots, error) -> {
                     if (error != null) {
                         Log.e(TAG, "Listen failed", error);
+                        target.onError();
                         return;
                     }
 
                     if (queryDocumentSnapshots != null) {
-                        List<DiaryEntry> entries = new ArrayList<>();
+                        List<DiaryEntry> recent = new ArrayList<>();
                         for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
                             DiaryEntry entry = document.toObject(DiaryEntry.class);
                             entry.setId(document.getId());
-                            entries.add(entry);
+                            recent.add(entry);
                         }
-                        cachedEntries = entries;
-                        entriesCacheValid = true;
-                        Log.d(TAG, "Real-time update: " + entries.size() + " entries");
-                        listener.onSuccess(entries);
+                        if (archiveLoaded) {
+                            applySnapshot(queryDocumentSnapshots, recent, target);
+                        } else {
+                            // Snapshots queue up behind the load in order, each applied in turn
+                            Task<List<DiaryEntry>> archived = loadArchive();
+                            archived.addOnCompleteListener(task -> {
+                                addArchive(archived);
+                                applySnapshot(queryDocumentSnapshots, recent, target);
+                            });
+                        }
+                    }
+                });
+    }
+
+    /** Applies a snapshot of the retention window to the cache, followed by the archived summaries. */
+    private void applySnapshot(QuerySnapshot snapshot, List<DiaryEntry> recent,
+                               SharedListener<List<DiaryEntry>> target) {
+        List<DiaryEntry> entries = withArchived(recent);
+        trackPersistedChanges(snapshot);
+        applyDerivedChanges(snapshot, recent, entries);
+        cachedEntries = entries;
+        entriesCacheValid = true;
+        Log.d(TAG, "Real-time update: " + entries.size() + " entries");
+        publishEntries();
+        // The unmodifiable copy just published: the listener keeps its value for later
+        // subscribers, and cachedEntries changes in place
+        target.publish(entriesLiveData.getValue());
+
+        // Only a server snapshot of a verified archive is known to hold every reference
+        if (!snapshot.getMetadata().isFromCache()) {
+            if (archiveVerified) {
+                maybeCollectOrphanedImages(entries);
+            } else {
+                verifyArchive();
+            }
+        }
+    }
+
+    /**
+     * Keeps persistedHashes in step with changes from other devices. Documents with
+     * pending writes are our own unconfirmed saves; those recorded their hash when issued.
+     */
+    private void trackPersistedChanges(QuerySnapshot snapshot) {
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                persistedHashes.remove(document.getId());
+            } else if (!document.getMetadata().hasPendingWrites()) {
+                DiaryEntry entry = document.toObject(DiaryEntry.class);
+                entry.setId(document.getId());
+                rememberPersisted(entry);
+            }
+        }
+    }
+
+    /**
+     * Applies a snapshot to the writing calendar, search index and archive. A change set
+     * covering every document, as the first snapshot's does, is treated as a full rebuild so
+     * that entries deleted while nothing was listening are dropped too.
+     *
+     * @param recent  the snapshot's entries
+     * @param entries the recent entries followed by the archived ones
+     */
+    private void applyDerivedChanges(QuerySnapshot snapshot, List<DiaryEntry> recent, List<DiaryEntry> entries) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        if (changes.size() == recent.size()) {
+            writingCalendar.rebuild(entries);
+            syncSearchIndex(entries);
+            archive.put(recent);
+            return;
+        }
+        for (DocumentChange change : changes) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                writingCalendar.remove(change.getDocument().getId());
+                searchIndex.remove(change.getDocument().getId());
+                archive.remove(change.getDocument().getId());
+            } else {
+                DiaryEntry entry = recent.get(change.getNewIndex());
+                writingCalendar.put(entry);
+                searchIndex.index(entry);
+                archive.put(entry);
+            }
+        }
+    }
+
+    /** Syncs the search index with a full entry list, or only adds to it while the list may be partial. */
+    private void syncSearchIndex(List<DiaryEntry> entries) {
+        if (archiveLoaded && archiveVerified) {
+            searchIndex.sync(entries);
+        } else {
+            searchIndex.update(entries);
+        }
+    }
+
+    // ─── Retention ───────────────────────────────────────────────────────────
+
+    /** Start of the retention window: the first day of the oldest of the last RETENTION_MONTHS months. */
+    private long retentionCutoff() {
+        if (retentionCutoff == 0) {
+            LocalDate start = LocalDate.ofEpochDay(DateUtils.today())
+                    .minusMonths(RETENTION_MONTHS - 1)
+                    .withDayOfMonth(1);
+            retentionCutoff = DateUtils.startOfDay((int) start.toEpochDay());
+        }
+        return retentionCutoff;
+    }
+
+    /** Loads the summaries from before the retention window, once per session. */
+    private Task<List<DiaryEntry>> loadArchive() {
+        if (archiveTask == null) {
+            archiveTask = archive.loadBefore(retentionCutoff());
+        }
+        return archiveTask;
+    }
+
+    /**
+     * Puts a finished archive load into the cache, unless it already holds the summaries.
+     * A failed load is retried by the next read.
+     */
+    private void addArchive(Task<List<DiaryEntry>> archived) {
+        if (archiveLoaded) return;
+        if (!archived.isSuccessful()) {
+            Log.e(TAG, "Failed to load archived entries", archived.getException());
+            archiveTask = null;
+            return;
+        }
+        List<DiaryEntry> entries = recentOf(cachedEntries);
+        entries.addAll(archived.getResult());
+        cachedEntries = entries;
+        archiveLoaded = true;
+    }
+
+    /**
+     * The given recent entries followed by the cached ones from before the retention window,
+     * which no query returns. Cached entries that the recent list also holds are left out.
+     */
+    private List<DiaryEntry> withArchived(List<DiaryEntry> recent) {
+        long cutoff = retentionCutoff();
+        Set<String> ids = new HashSet<>();
+        for (DiaryEntry entry : recent) {
+            ids.add(entry.getId());
+        }
+        List<DiaryEntry> entries = new ArrayList<>(recent);
+        for (DiaryEntry entry : cachedEntries) {
+            if (entry.getTimestamp() < cutoff && !ids.contains(entry.getId())) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /** The entries of a list sorted newest first that fall in the retention window. */
+    private List<DiaryEntry> recentOf(List<DiaryEntry> entries) {
+        long cutoff = retentionCutoff();
+        List<DiaryEntry> recent = new ArrayList<>();
+        for (DiaryEntry entry : entries) {
+            if (entry.getTimestamp() < cutoff) break;
+            recent.add(entry);
+        }
+        return recent;
+    }
+
+    /**
+     * Checks the archive against the server once per session with one aggregate over the
+     * entries before the retention window, their count and the sum of their {@code updatedAt},
+     * which downloads no documents. A mismatch (an import, entries added, deleted or edited
+     * elsewhere, or a first run with an empty archive) fetches those entries again page by
+     * page to summarize them; their bodies pass through Firestore's cache and are evicted from
+     * it later. Skipped offline and tried again on the next server snapshot.
+     */
+    private void verifyArchive() {
+        String userId = getCurrentUserId();
+        if (userId == null || archiveVerified || !archiveLoaded || archiveCheckTask != null) return;
+
+        long cutoff = retentionCutoff();
+        int recent = recentOf(cachedEntries).size();
+        long archived = cachedEntries.size() - recent;
+        long localUpdates = sumOfUpdates(cachedEntries.subList(recent, cachedEntries.size()));
+
+        AggregateField updates = AggregateField.sum("updatedAt");
+        Task<Void> check = db.collection(COLLECTION_ENTRIES)
+                .whereEqualTo("userId", userId)
+                .whereLessThan("timestamp", cutoff)
+                .aggregate(AggregateField.count(), updates)
+                .get(AggregateSource.SERVER)
+                .continueWithTask(task -> {
+                    AggregateQuerySnapshot snapshot = task.getResult();
+                    Long serverUpdates = snapshot.getLong(updates);
+                    if (snapshot.getCount() == archived
+                            && (serverUpdates != null ? serverUpdates : 0) == localUpdates) {
+                        Log.d(TAG, "Archive verified: " + archived + " entries");
+                        return Tasks.forResult(null);
                     }
+                    Log.d(TAG, "Archive has " + archived + " of " + snapshot.getCount()
+                            + " entries or is out of date, refetching");
+                    return refetchArchive(userId, cutoff, null, new ArrayList<>());
                 });
+        archiveCheckTask = check;
+        check.addOnCompleteListener(task -> {
+            if (archiveCheckTask != check) return; // Archive forgotten meanwhile
+            archiveCheckTask = null;
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Archive check skipped", task.getException());
+                return;
+            }
+            onArchiveVerified();
+        });
+    }
+
+    /**
+     * Fetches the entries from before the retention window {@link #ARCHIVE_PAGE_SIZE} at a
+     * time, newest first, storing each page's summaries before reading the next so only one
+     * page of bodies is held. Once the last page is in, summaries of entries the server no
+     * longer has are removed and the cache takes the new summaries.
+     *
+     * @param after     last document of the previous page; null for the first
+     * @param summaries summaries of the pages read so far, added to
+     */
+    private Task<Void> refetchArchive(String userId, long cutoff, DocumentSnapshot after,
+                                      List<DiaryEntry> summaries) {
+        Query query = db.collection(COLLECTION_ENTRIES)
+                .whereEqualTo("userId", userId)
+                .whereLessThan("timestamp", cutoff)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(ARCHIVE_PAGE_SIZE);
+        if (after != null) {
+            query = query.startAfter(after);
+        }
+        return query.get(Source.SERVER).continueWithTask(task -> {
+            QuerySnapshot page = task.getResult();
+            if (!archiveLoaded || cutoff != retentionCutoff || !userId.equals(getCurrentUserId())) {
+                return Tasks.forCanceled(); // Cache cleared meanwhile
+            }
+
+            List<DiaryEntry> full = new ArrayList<>(page.size());
+            for (QueryDocumentSnapshot document : page) {
+                DiaryEntry entry = document.toObject(DiaryEntry.class);
+                entry.setId(document.getId());
+                full.add(entry);
+                summaries.add(EntryArchive.summaryOf(entry));
+            }
+            archive.put(full);
+            searchIndex.update(full);
+
+            if (page.size() == ARCHIVE_PAGE_SIZE) {
+                DocumentSnapshot last = page.getDocuments().get(page.size() - 1);
+                return refetchArchive(userId, cutoff, last, summaries);
+            }
+
+            Set<String> ids = new HashSet<>();
+            for (DiaryEntry summary : summaries) {
+                ids.add(summary.getId());
+            }
+            archive.retainBefore(cutoff, ids);
+            List<DiaryEntry> entries = recentOf(cachedEntries);
+            entries.addAll(summaries);
+            cachedEntries = entries;
+            writingCalendar.rebuild(entries);
+            Log.d(TAG, "Archive refetched: " + summaries.size() + " entries");
+            return Tasks.forResult(null);
+        });
+    }
+
+    /** Sum of the entries' updatedAt, as Firestore's sum aggregate computes it. */
+    private static long sumOfUpdates(List<DiaryEntry> entries) {
+        long sum = 0;
+        for (DiaryEntry entry : entries) {
+            sum += entry.getUpdatedAt();
+        }
+        return sum;
+    }
+
+    /** The cache now holds every entry: drops search rows of entries deleted while it didn't. */
+    private void onArchiveVerified() {
+        archiveVerified = true;
+        if (entriesCacheValid) {
+            searchIndex.sync(cachedEntries);
+            publishEntries();
+        }
+    }
+
+    /** Drops the loaded archive, so the next read loads and checks it again. */
+    private void forgetArchive() {
+        archiveTask = null;
+        archiveLoaded = false;
+        archiveVerified = false;
+        archiveCheckTask = null;
+    }
+
+    // ─── Observable state ────────────────────────────────────────────────────
+
+    /**
+     * The current user's entries, newest first. Observing keeps the shared entries listener
+     * attached, and every local write or snapshot publishes the new list, so screens render
+     * from memory and always agree. Observe from the main thread.
+     */
+    public LiveData<List<DiaryEntry>> observeEntries() {
+        return entriesLiveData;
+    }
+
+    /** Today's entry, or null until one is written. Re-evaluated whenever an observer starts, so it follows midnight. */
+    public LiveData<DiaryEntry> observeTodayEntry() {
+        return todayEntryLiveData;
+    }
+
+    /** Entry count and streak, recomputed from memory on every change. */
+    public LiveData<EntryStats> observeStats() {
+        return statsLiveData;
+    }
+
+    /** The current user's profile. Observing keeps the shared profile listener attached. */
+    public LiveData<UserProfile> observeProfile() {
+        return profileLiveData;
+    }
+
+    /**
+     * Publishes cachedEntries and everything derived from it. Called after every change to
+     * the cache; does nothing while the cache doesn't hold the full list.
+     */
+    private void publishEntries() {
+        if (!entriesCacheValid) return;
+        List<DiaryEntry> entries = Collections.unmodifiableList(new ArrayList<>(cachedEntries));
+        entriesLiveData.setValue(entries);
+        todayEntryLiveData.setValue(entryForDay(entries, DateUtils.today()));
+        statsLiveData.setValue(new EntryStats(entries.size(), streakOf(entries)));
+    }
+
+    /** Publishes cachedProfile. */
+    private void publishProfile() {
+        profileLiveData.setValue(cachedProfile);
     }
 
     /**
-     * Removes the active entries real-time listener, if one exists.
-     * Call this when the listening activity or component is destroyed.
+     * Sets today's entry when an observer starts: from memory if the entries are loaded,
+     * otherwise from getEntryForDay, which reuses the startup prefetch.
      */
-    public void stopEntriesListener() {
-        if (entriesListener != null) {
-            entriesListener.remove();
-            entriesListener = null;
-            Log.d(TAG, "Entries listener stopped");
+    private void refreshTodayEntry() {
+        int today = DateUtils.today();
+        if (entriesCacheValid) {
+            todayEntryLiveData.setValue(entryForDay(cachedEntries, today));
+            return;
+        }
+        getEntryForDay(today, entry -> {
+            // The full list may have arrived meanwhile; it wins
+            if (!entriesCacheValid) todayEntryLiveData.setValue(entry);
+        });
+    }
+
+    /** First entry of the given day in a list sorted newest first, or null. */
+    private static DiaryEntry entryForDay(List<DiaryEntry> entries, int day) {
+        for (DiaryEntry entry : entries) {
+            int entryDay = DateUtils.epochDay(entry.getTimestamp());
+            if (entryDay == day) return entry;
+            if (entryDay < day) break;
         }
+        return null;
     }
 
     // ─── Streak ──────────────────────────────────────────────────────────────
@@ -529,71 +1416,120 @@ public class DataRepository {
      * <p>If today already has an entry, the count starts from today.
      * If not, it starts from yesterday (so the streak isn't broken simply
      * because the user hasn't written yet today). Counts backwards day by day
-     * until a gap is found, up to a maximum of 365 days.</p>
+     * until a gap is found. Relies on the entry list being sorted newest first,
+     * so it is a single pass of epoch-day comparisons.</p>
      *
      * @param listener callback that receives the streak count (0 if no entries exist)
      */
     public void calculateStreak(OnSuccessListener<Integer> listener) {
         getEntries(allEntries -> {
-            if (allEntries.isEmpty()) {
-                listener.onSuccess(0);
-                return;
+            int streak = streakOf(allEntries);
+            Log.d(TAG, "Calculated streak: " + streak);
+            listener.onSuccess(streak);
+        });
+    }
+
+    /** Streak of an entry list sorted newest first; see {@link #calculateStreak}. */
+    private static int streakOf(List<DiaryEntry> entries) {
+        int today = DateUtils.today();
+        int expectedDay = today;
+        int streak = 0;
+
+        for (DiaryEntry entry : entries) {
+            int day = DateUtils.epochDay(entry.getTimestamp());
+            if (day > expectedDay) {
+                // Another entry on a day already counted (or a future timestamp)
+                continue;
             }
+            if (day == expectedDay || (streak == 0 && expectedDay == today && day == today - 1)) {
+                streak++;
+                expectedDay = day - 1;
+            } else {
+                break;
+            }
+        }
+        return streak;
+    }
+
+    // ─── Writing calendar ────────────────────────────────────────────────────
+
+    /**
+     * Returns the per-day word counts behind the profile heatmap. The calendar is kept in step
+     * with the entry cache, so once entries are loaded this answers without a query, and
+     * every year can be read from it directly. Must be called on the main thread; the
+     * calendar must only be read there.
+     *
+     * @param listener callback that receives the calendar
+     */
+    public void getWritingCalendar(OnSuccessListener<WritingCalendar> listener) {
+        getEntries(entries -> listener.onSuccess(writingCalendar));
+    }
 
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
+    // ─── Writing patterns ────────────────────────────────────────────────────
 
-            long todayStart = calendar.getTimeInMillis();
+    /**
+     * Counts a save as a writing session in the profile's hour-of-day and day-of-week
+     * histograms and refreshes favoriteWritingTime. A session is a clock hour with saves (see
+     * {@link WritingPatterns}), so later saves in the same hour return before the profile is
+     * read, and it is written at most once an hour while the user writes. Profiles without
+     * histograms are first seeded from the entries' save times.
+     */
+    private void recordWrite(long timestamp) {
+        long hour = WritingPatterns.sessionHourOf(timestamp);
+        if (hour == lastSessionHour) return;
+        lastSessionHour = hour;
 
-            // Check if we have entry for today
-            boolean hasToday = false;
-            for (DiaryEntry entry : allEntries) {
-                if (entry.getTimestamp() >= todayStart) {
-                    hasToday = true;
-                    break;
-                }
+        getUserProfile(profile -> {
+            if (profile == null) return;
+
+            if (profile.getHourHistogram() == null) {
+                getEntries(entries -> {
+                    if (!entriesCacheValid) return; // Seed from a complete list only
+                    WritingPatterns seeded = WritingPatterns.fromEntries(entries);
+                    seeded.recordSession(timestamp);
+                    saveWritingPatterns(profile, seeded);
+                });
+                return;
             }
 
-            // Start from today or yesterday
-            if (!hasToday) {
-                calendar.add(Calendar.DAY_OF_YEAR, -1);
+            WritingPatterns patterns = WritingPatterns.fromProfile(profile);
+            if (patterns.recordSession(timestamp)) {
+                saveWritingPatterns(profile, patterns);
             }
+        });
+    }
 
-            int streak = 0;
-
-            // Count backwards
-            for (int i = 0; i < 365; i++) {
-                calendar.set(Calendar.HOUR_OF_DAY, 0);
-                calendar.set(Calendar.MINUTE, 0);
-                calendar.set(Calendar.SECOND, 0);
-                calendar.set(Calendar.MILLISECOND, 0);
-
-                long dayStart = calendar.getTimeInMillis();
-                calendar.add(Calendar.DAY_OF_YEAR, 1);
-                long dayEnd = calendar.getTimeInMillis();
-                calendar.add(Calendar.DAY_OF_YEAR, -1);
-
-                boolean foundEntry = false;
-                for (DiaryEntry entry : allEntries) {
-                    if (entry.getTimestamp() >= dayStart && entry.getTimestamp() < dayEnd) {
-                        foundEntry = true;
-                        break;
-                    }
-                }
+    /**
+     * Applies the patterns to the cached profile right away, so the next save in the same hour
+     * sees them, then writes only the pattern fields.
+     */
+    private void saveWritingPatterns(UserProfile profile, WritingPatterns patterns) {
+        String userId = getCurrentUserId();
+        if (userId == null) return;
 
-                if (foundEntry) {
-                    streak++;
-                    calendar.add(Calendar.DAY_OF_YEAR, -1);
-                } else {
-                    break;
-                }
-            }
+        patterns.writeTo(profile);
+        if (profile == cachedProfile) publishProfile();
+        db.collection(COLLECTION_PROFILES)
+                .document(userId)
+                .update(patterns.toFields())
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Writing patterns updated: "
+                        + profile.getFavoriteWritingTime()))
+                .addOnFailureListener(e -> Log.e(TAG, "Error updating writing patterns", e));
+    }
 
-            Log.d(TAG, "Calculated streak: " + streak);
-            listener.onSuccess(streak);
+    /**
+     * Returns the user's writing patterns, read from the profile's histograms.
+     *
+     * @param listener callback that receives the patterns; empty if nothing was counted yet
+     */
+    public void getWritingPatterns(OnSuccessListener<WritingPatterns> listener) {
+        getUserProfile(profile -> {
+            if (profile != null && profile.getHourHistogram() != null) {
+                listener.onSuccess(WritingPatterns.fromProfile(profile));
+                return;
+            }
+            // Not counted yet: derive them from the entries without storing anything
+            getEntries(entries -> listener.onSuccess(WritingPatterns.fromEntries(entries)));
         });
     }
 
@@ -632,6 +1568,104 @@ public class DataRepository {
                 });
     }
 
+    // ─── Paged reads ─────────────────────────────────────────────────────────
+
+    /**
+     * Returns one page of the current user's entries, newest first, without touching the cache.
+     *
+     * <p>Meant for work that walks the whole diary (export, import) and must not hold it all in
+     * memory. Unlike the other read methods the returned Task can be awaited on a background
+     * thread.</p>
+     *
+     * <p>Pages are read from the server, with pending local writes applied, and fail offline.
+     * Firestore's local cache only keeps the retention window, so a page served from it would
+     * silently leave out older entries.</p>
+     *
+     * @param after    last document of the previous page, or null for the first page
+     * @param pageSize maximum number of documents in the page
+     */
+    public Task<QuerySnapshot> getEntriesPage(DocumentSnapshot after, int pageSize) {
+        String userId = getCurrentUserId();
+        if (userId == null) {
+            return Tasks.forException(new IllegalStateException("User not logged in"));
+        }
+
+        Query query = db.collection(COLLECTION_ENTRIES)
+                .whereEqualTo("userId", userId)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(pageSize);
+        if (after != null) {
+            query = query.startAfter(after);
+        }
+        return query.get(Source.SERVER);
+    }
+
+    /**
+     * Counts the current user's entries with a server-side aggregation, so no documents are
+     * downloaded. Fails when offline; callers should treat the total as unknown then.
+     */
+    public Task<Long> countEntries() {
+        String userId = getCurrentUserId();
+        if (userId == null) {
+            return Tasks.forException(new IllegalStateException("User not logged in"));
+        }
+
+        return db.collection(COLLECTION_ENTRIES)
+                .whereEqualTo("userId", userId)
+                .count()
+                .get(AggregateSource.SERVER)
+                .continueWith(task -> task.getResult().getCount());
+    }
+
+    // ─── Bulk writes ─────────────────────────────────────────────────────────
+
+    /** Maximum number of operations Firestore accepts in one WriteBatch. */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Creates the entries in one atomic WriteBatch, assigning each a new document id and the
+     * current user. Doesn't touch the cache, so it can be called from a background thread;
+     * call {@link #onEntriesImported(int)} on the main thread once all batches are committed.
+     *
+     * @param entries at most {@link #MAX_BATCH_SIZE} new entries
+     */
+    public Task<Void> addEntriesBatch(List<DiaryEntry> entries) {
+        String userId = getCurrentUserId();
+        if (userId == null) {
+            return Tasks.forException(new IllegalStateException("User not logged in"));
+        }
+        if (entries.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " entries per batch");
+        }
+
+        WriteBatch batch = db.batch();
+        long now = System.currentTimeMillis();
+        for (DiaryEntry entry : entries) {
+            DocumentReference document = db.collection(COLLECTION_ENTRIES).document();
+            entry.setId(document.getId());
+            entry.setUserId(userId);
+            entry.setUpdatedAt(now);
+            batch.set(document, entry.toMap());
+        }
+        return batch.commit();
+    }
+
+    /**
+     * Brings the in-memory state up to date after a bulk import, once for the whole import
+     * rather than per entry: the entry list is re-read on next use, which Firestore serves
+     * from its local cache. Must be called on the main thread.
+     *
+     * @param count number of entries the import created
+     */
+    public void onEntriesImported(int count) {
+        if (count == 0) return;
+        entriesCacheValid = false;
+        prefetchedDayTask = null;
+        // Imported entries are mostly older ones; the archive check will find and fetch them
+        forgetArchive();
+        Log.d(TAG, "Imported " + count + " entries, entry cache invalidated");
+    }
+
     /**
      * Deletes all entries for the current user. Used during account deletion.
      *
@@ -660,12 +1694,38 @@ public class DataRepository {
                     }
 
                     // Delete all documents
+                    List<QueryDocumentSnapshot> documents = new ArrayList<>();
+                    List<Task<Void>> deletes = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        document.getReference().delete();
+                        documents.add(document);
+                        deletes.add(document.getReference().delete());
                     }
 
                     cachedEntries.clear();
                     entriesCacheValid = false;
+                    persistedHashes.clear();
+                    prefetchedDayTask = null;
+                    writingCalendar.clear();
+                    searchIndex.clear();
+                    archive.clear();
+                    forgetArchive();
+                    entriesLiveData.setValue(Collections.emptyList());
+                    todayEntryLiveData.setValue(null);
+                    statsLiveData.setValue(EntryStats.EMPTY);
+
+                    // Image files go once the server has the deletes; an entry whose delete
+                    // failed keeps its image. Never collected if the deletes never arrive
+                    Tasks.whenAllComplete(deletes).addOnSuccessListener(results -> {
+                        if (!userId.equals(getCurrentUserId())) return;
+                        List<DiaryEntry> remaining = new ArrayList<>();
+                        for (int i = 0; i < results.size(); i++) {
+                            if (!results.get(i).isSuccessful()) {
+                                remaining.add(documents.get(i).toObject(DiaryEntry.class));
+                            }
+                        }
+                        Log.d(TAG, "Collecting images, " + remaining.size() + " entries not deleted");
+                        new ImageGarbageCollector(appContext).collect(remaining, null);
+                    });
 
                     Log.d(TAG, "Deleted " + count + " entries");
                     if (listener != null) listener.onComplete(null);
@@ -708,6 +1768,7 @@ public class DataRepository {
                             profile.setId(documentSnapshot.getId());
                             cachedProfile = profile;
                             profileCacheValid = true;
+                            publishProfile();
                             Log.d(TAG, "Profile loaded from Firestore");
                         }
                         listener.onSuccess(profile);
@@ -745,6 +1806,7 @@ public class DataRepository {
                 .addOnSuccessListener(aVoid -> {
                     cachedProfile = profile;
                     profileCacheValid = true;
+                    publishProfile();
                     Log.d(TAG, "Profile updated");
                     if (listener != null) listener.onComplete(null);
                 })
@@ -808,29 +1870,20 @@ public class DataRepository {
         });
     }
 
-    /**
-     * Starts a real-time listener on the user's profile document.
-     * The callback fires automatically whenever the profile is updated.
-     * Replaces any previously active profile listener.
-     *
-     * @param listener callback that receives the updated profile on each change
-     */
-    public void startProfileListener(OnSuccessListener<UserProfile> listener) {
+    /** Attaches the Firestore listener behind {@link #observeProfile()}. */
+    private ListenerRegistration attachProfileListener(SharedListener<UserProfile> target) {
         String userId = getCurrentUserId();
         if (userId == null) {
             Log.e(TAG, "User not logged in");
-            return;
+            return null;
         }
 
-        if (profileListener != null) {
-            profileListener.remove();
-        }
-
-        profileListener = db.collection(COLLECTION_PROFILES)
+        return db.collection(COLLECTION_PROFILES)
                 .document(userId)
                 .addSnapshotListener((documentSnapshot, error) -> {
                     if (error != null) {
                         Log.e(TAG, "Profile listen failed", error);
+                        target.onError();
                         return;
                     }
 
@@ -840,22 +1893,11 @@ public class DataRepository {
                             profile.setId(documentSnapshot.getId());
                             cachedProfile = profile;
                             profileCacheValid = true;
+                            publishProfile();
                             Log.d(TAG, "Profile real-time update");
-                            listener.onSuccess(profile);
+                            target.publish(profile);
                         }
                     }
                 });
     }
-
-    /**
-     * Removes the active profile real-time listener, if one exists.
-     * Call this when the listening activity or component is destroyed.
-     */
-    public void stopProfileListener() {
-        if (profileListener != null) {
-            profileListener.remove();
-            profileListener = null;
-            Log.d(TAG, "Profile listener stopped");
-        }
-    }
 }
\ No newline at end of file
@@ -1,16 +1,24 @@
 package com.afonso.fiveminutediary.data;
 
+import com.afonso.fiveminutediary.utils.WordCounter;
+
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class DiaryEntry implements Serializable {
     private String id;           // Firebase document ID
     private String userId;       // Owner of the entry
     private long timestamp;
     private String text;
-    private String imagePath;
+    private String imagePath;    // Legacy absolute path; new images use imageHash
+    private String imageHash;    // Key of the image in ImageStore
+    private int imageWidth;
+    private int imageHeight;
     private String formatting;   // JSON string com formatação rica
+    private long updatedAt;      // When this device or another last wrote it, in ms; 0 if never stamped
+    private int summaryWordCount = -1; // Word count of the full text when text is only a preview
 
     // Empty constructor required for Firebase
     public DiaryEntry() {
@@ -38,6 +46,21 @@ public class DiaryEntry implements Serializable {
         this.formatting = formatting;
     }
 
+    /** Copy of other, for editing an entry without touching the one the repository shares. */
+    public DiaryEntry(DiaryEntry other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.timestamp = other.timestamp;
+        this.text = other.text;
+        this.imagePath = other.imagePath;
+        this.imageHash = other.imageHash;
+        this.imageWidth = other.imageWidth;
+        this.imageHeight = other.imageHeight;
+        this.formatting = other.formatting;
+        this.updatedAt = other.updatedAt;
+        this.summaryWordCount = other.summaryWordCount;
+    }
+
     // Convert to Map for Firebase
     public Map<String, Object> toMap() {
         HashMap<String, Object> result = new HashMap<>();
@@ -45,10 +68,44 @@ public class DiaryEntry implements Serializable {
         result.put("timestamp", timestamp);
         result.put("text", text);
         result.put("imagePath", imagePath);
+        result.put("imageHash", imageHash);
+        result.put("imageWidth", imageWidth);
+        result.put("imageHeight", imageHeight);
         result.put("formatting", formatting);
+        result.put("updatedAt", updatedAt);
         return result;
     }
 
+    /**
+     * Hash of every field that affects how the entry is displayed.
+     * Used by list diffing to tell whether an entry with the same id has changed.
+     * Not a getter on purpose, so it is never written to Firestore.
+     */
+    public int contentHash() {
+        return Objects.hash(timestamp, text, imagePath, imageHash, formatting, summaryWordCount);
+    }
+
+    /**
+     * Marks this entry as a summary kept for an older entry: text holds only the start of
+     * the full text and formatting is left out. Summaries are for listing and counting; the
+     * full entry must be loaded before showing or saving it.
+     *
+     * @param wordCount word count of the full text
+     */
+    public void markSummary(int wordCount) {
+        this.summaryWordCount = wordCount;
+    }
+
+    /** False for a summary, see {@link #markSummary(int)}. Not a getter, like contentHash. */
+    public boolean hasFullText() {
+        return summaryWordCount < 0;
+    }
+
+    /** Words in the full text, also for a summary. */
+    public int countWords() {
+        return hasFullText() ? WordCounter.count(text) : summaryWordCount;
+    }
+
     // Getters and setters
     public String getId() {
         return id;
@@ -90,6 +147,30 @@ public class DiaryEntry implements Serializable {
         this.imagePath = imagePath;
     }
 
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public void setImageWidth(int imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public void setImageHeight(int imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+
     public String getFormatting() {
         return formatting;
     }
@@ -97,4 +178,16 @@ public class DiaryEntry implements Serializable {
     public void setFormatting(String formatting) {
         this.formatting = formatting;
     }
-}
\ No newline at end of file
+
+    /**
+     * Time of the last write, set by the repository just before sending one. The archive
+     * check sums it over older entries to notice edits made on other devices.
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.afonso.fiveminutediary.data;
+
+import android.text.SpannableString;
+
+/**
+ * In-memory draft of one day's entry, shared by the screens that edit it.
+ *
+ * <p>MainActivity and ExpandedEditActivity both read and write the same session
+ * (obtained from {@link DataRepository#getEditingSession(int)}) instead of passing
+ * text and serialized formatting back and forth through Intent extras. Content is kept
+ * as a formatted copy, so no JSON round-trip is needed to hand it over. Only the
+ * main thread touches a session.</p>
+ */
+public class EditingSession {
+
+    private final int day;
+    private SpannableString content;
+    private long version = 0;
+
+    EditingSession(int day) {
+        this.day = day;
+        this.content = new SpannableString("");
+    }
+
+    /** The day this session edits, as a {@link com.afonso.fiveminutediary.utils.DateUtils} epoch day. */
+    public int getDay() {
+        return day;
+    }
+
+    /** The current draft, including formatting. Callers must not modify it. */
+    public SpannableString getContent() {
+        return content;
+    }
+
+    /**
+     * Replaces the draft with a copy of the given text and its supported formatting.
+     *
+     * @param text the editor's current text; copied, so the editor can keep editing it
+     */
+    public void setContent(CharSequence text) {
+        content = TextFormattingSerializer.copyFormatted(text);
+        version++;
+    }
+
+    /** Incremented on every {@link #setContent} call; lets a screen tell whether another one changed the draft. */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return content.toString().trim().isEmpty();
+    }
+}
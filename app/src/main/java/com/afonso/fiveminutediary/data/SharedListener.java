@@ -0,0 +1,154 @@
+package com.afonso.fiveminutediary.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One Firestore snapshot listener shared by any number of subscribers.
+ *
+ * <p>The listener is attached by the first subscriber and stays attached for {@code lingerMs}
+ * after the last one leaves, so moving between screens, which unsubscribes in onPause and
+ * subscribes again in the next screen's onResume, keeps the same listener instead of paying
+ * for a full snapshot each time. A subscriber joining an attached listener gets its latest
+ * value straight away.</p>
+ *
+ * <p>Firestore ends a listener that fails. While anyone is still subscribed, a new one is
+ * attached after a delay that doubles with each failure in a row, from
+ * {@link #RETRY_INITIAL_MS} up to {@link #RETRY_MAX_MS}.</p>
+ *
+ * <p>Main thread only; Firestore delivers snapshots there.</p>
+ *
+ * @param <T> value published for each snapshot
+ */
+final class SharedListener<T> {
+
+    private static final String TAG = "SharedListener";
+
+    static final long RETRY_INITIAL_MS = 1_000;
+    static final long RETRY_MAX_MS = 60_000;
+
+    interface Source<T> {
+        /**
+         * Attaches the Firestore listener, which must call {@link #publish} for every value and
+         * {@link #onError} if it fails. Returns null if it can't attach (e.g. signed out).
+         */
+        ListenerRegistration attach(SharedListener<T> target);
+    }
+
+    private final String name;
+    private final Source<T> source;
+    private final long lingerMs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable detachRunnable = this::detach;
+    private final Runnable reattachRunnable = this::reattach;
+
+    private final List<OnSuccessListener<T>> subscribers = new ArrayList<>();
+    private ListenerRegistration registration = null;
+    private T latest = null;
+    private boolean hasLatest = false;
+
+    /** Delay before the next re-attach after an error; back to the initial one on a value. */
+    private long retryDelayMs = RETRY_INITIAL_MS;
+
+    SharedListener(String name, long lingerMs, Source<T> source) {
+        this.name = name;
+        this.lingerMs = lingerMs;
+        this.source = source;
+    }
+
+    /**
+     * Adds a subscriber, attaching the listener if needed. If a value is already known it is
+     * delivered before this returns.
+     *
+     * @return handle whose remove() unsubscribes
+     */
+    ListenerRegistration subscribe(OnSuccessListener<T> subscriber) {
+        handler.removeCallbacks(detachRunnable);
+        subscribers.add(subscriber);
+
+        if (registration == null) {
+            handler.removeCallbacks(reattachRunnable);
+            registration = source.attach(this);
+            Log.d(TAG, name + (registration != null ? " listener attached" : " listener not attached"));
+        } else if (hasLatest) {
+            subscriber.onSuccess(latest);
+        }
+        return () -> unsubscribe(subscriber);
+    }
+
+    /**
+     * Keeps the listener attached without receiving values, for holders that get the data
+     * some other way (the repository's LiveData is fed by the snapshot handler itself).
+     */
+    ListenerRegistration retain() {
+        return subscribe(value -> {});
+    }
+
+    private void unsubscribe(OnSuccessListener<T> subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+            handler.removeCallbacks(reattachRunnable);
+            if (registration != null) {
+                handler.postDelayed(detachRunnable, lingerMs);
+            }
+        }
+    }
+
+    /** Delivers a value to every current subscriber and keeps it for later ones. */
+    void publish(T value) {
+        latest = value;
+        hasLatest = true;
+        retryDelayMs = RETRY_INITIAL_MS;
+        // Copy: a subscriber may unsubscribe from its own callback
+        for (OnSuccessListener<T> subscriber : new ArrayList<>(subscribers)) {
+            subscriber.onSuccess(value);
+        }
+    }
+
+    /**
+     * Firestore ends a listener after an error. Current subscribers get a new one after the
+     * retry delay; if nobody is subscribed, the next subscriber attaches it.
+     */
+    void onError() {
+        registration = null;
+        latest = null;
+        hasLatest = false;
+        if (subscribers.isEmpty()) return;
+
+        handler.removeCallbacks(reattachRunnable);
+        handler.postDelayed(reattachRunnable, retryDelayMs);
+        Log.w(TAG, name + " listener failed, re-attaching in " + retryDelayMs + " ms");
+        retryDelayMs = Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+    }
+
+    private void reattach() {
+        if (registration != null || subscribers.isEmpty()) return;
+        registration = source.attach(this);
+        Log.d(TAG, name + (registration != null ? " listener re-attached" : " listener not re-attached"));
+    }
+
+    private void detach() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+            Log.d(TAG, name + " listener detached");
+        }
+        latest = null;
+        hasLatest = false;
+    }
+
+    /** Detaches immediately and drops every subscriber, e.g. on logout. */
+    void close() {
+        handler.removeCallbacks(detachRunnable);
+        handler.removeCallbacks(reattachRunnable);
+        retryDelayMs = RETRY_INITIAL_MS;
+        subscribers.clear();
+        detach();
+    }
+}
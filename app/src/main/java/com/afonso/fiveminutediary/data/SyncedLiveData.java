@@ -0,0 +1,45 @@
+package com.afonso.fiveminutediary.data;
+
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+/**
+ * Repository state as LiveData. While it has active observers it keeps a {@link SharedListener}
+ * attached, so the data on screen follows Firestore; the value itself is set by
+ * {@link DataRepository} whenever its in-memory state changes, from a snapshot or a local write.
+ * New observers get the current value from memory without any query.
+ *
+ * @param <T> observed value
+ */
+final class SyncedLiveData<T> extends MutableLiveData<T> {
+
+    private final SharedListener<?> listener;
+    private final Runnable onActive;
+    private ListenerRegistration subscription = null;
+
+    /**
+     * @param listener shared listener that feeds this value
+     * @param onActive run each time the first observer becomes active; can be null
+     */
+    SyncedLiveData(SharedListener<?> listener, Runnable onActive) {
+        this.listener = listener;
+        this.onActive = onActive;
+    }
+
+    @Override
+    protected void onActive() {
+        if (subscription == null) {
+            subscription = listener.retain();
+        }
+        if (onActive != null) onActive.run();
+    }
+
+    @Override
+    protected void onInactive() {
+        if (subscription != null) {
+            subscription.remove();
+            subscription = null;
+        }
+    }
+}
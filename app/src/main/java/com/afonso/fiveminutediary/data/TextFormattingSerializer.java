@@ -3,6 +3,8 @@ package com.afonso.fiveminutediary.data;
 import android.graphics.Typeface;
 import android.text.Spannable;
 import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.CharacterStyle;
 import android.text.style.BackgroundColorSpan;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
@@ -191,6 +193,44 @@ public class TextFormattingSerializer {
         return spannable;
     }
 
+    /**
+     * Copies text and its supported spans (the ones this class serializes) into a new
+     * SpannableString, without going through JSON. Editor-internal spans such as
+     * composing or spell-check spans are left behind, and span objects are not shared
+     * with the source.
+     */
+    public static SpannableString copyFormatted(CharSequence text) {
+        SpannableString copy = new SpannableString(text.toString());
+        if (!(text instanceof Spanned) || text.length() == 0) {
+            return copy;
+        }
+
+        Spanned source = (Spanned) text;
+        for (Object span : source.getSpans(0, text.length(), CharacterStyle.class)) {
+            Object clone;
+            if (span instanceof StyleSpan) {
+                int style = ((StyleSpan) span).getStyle();
+                if (style != Typeface.BOLD && style != Typeface.ITALIC) continue;
+                clone = new StyleSpan(style);
+            } else if (span instanceof UnderlineSpan) {
+                clone = new UnderlineSpan();
+            } else if (span instanceof ForegroundColorSpan) {
+                clone = new ForegroundColorSpan(((ForegroundColorSpan) span).getForegroundColor());
+            } else if (span instanceof BackgroundColorSpan) {
+                clone = new BackgroundColorSpan(((BackgroundColorSpan) span).getBackgroundColor());
+            } else {
+                continue;
+            }
+
+            int start = source.getSpanStart(span);
+            int end = source.getSpanEnd(span);
+            if (start >= 0 && end <= text.length() && start < end) {
+                copy.setSpan(clone, start, end, source.getSpanFlags(span));
+            }
+        }
+        return copy;
+    }
+
     /**
      * Check if text has any formatting
      */
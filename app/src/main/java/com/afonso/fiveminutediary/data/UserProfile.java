@@ -1,6 +1,7 @@
 package com.afonso.fiveminutediary.data;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class UserProfile {
@@ -9,13 +10,15 @@ public class UserProfile {
     private long firstUseTimestamp;
     private long lastOpenedTimestamp;
     private int totalWordsWritten;
-    private String favoriteWritingTime;
+    private String favoriteWritingTime; // Derived from hourHistogram; null until the first write
+    private List<Integer> hourHistogram; // Writes per hour of day, 24 buckets
+    private List<Integer> weekdayHistogram; // Writes per day of week, Sunday first
+    private long lastWriteHour; // Local epoch hour of the last write counted in the histograms
 
     public UserProfile() {
         this.firstUseTimestamp = System.currentTimeMillis();
         this.lastOpenedTimestamp = System.currentTimeMillis();
         this.totalWordsWritten = 0;
-        this.favoriteWritingTime = "evening";
     }
 
     public UserProfile(String id) {
@@ -31,6 +34,9 @@ public class UserProfile {
         result.put("lastOpenedTimestamp", lastOpenedTimestamp);
         result.put("totalWordsWritten", totalWordsWritten);
         result.put("favoriteWritingTime", favoriteWritingTime);
+        result.put("hourHistogram", hourHistogram);
+        result.put("weekdayHistogram", weekdayHistogram);
+        result.put("lastWriteHour", lastWriteHour);
         return result;
     }
 
@@ -82,4 +88,28 @@ public class UserProfile {
     public void setFavoriteWritingTime(String favoriteWritingTime) {
         this.favoriteWritingTime = favoriteWritingTime;
     }
+
+    public List<Integer> getHourHistogram() {
+        return hourHistogram;
+    }
+
+    public void setHourHistogram(List<Integer> hourHistogram) {
+        this.hourHistogram = hourHistogram;
+    }
+
+    public List<Integer> getWeekdayHistogram() {
+        return weekdayHistogram;
+    }
+
+    public void setWeekdayHistogram(List<Integer> weekdayHistogram) {
+        this.weekdayHistogram = weekdayHistogram;
+    }
+
+    public long getLastWriteHour() {
+        return lastWriteHour;
+    }
+
+    public void setLastWriteHour(long lastWriteHour) {
+        this.lastWriteHour = lastWriteHour;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package com.afonso.fiveminutediary.image;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deletes image files that no live entry references any more.
+ *
+ * <p>Reconciles {@code filesDir/images} (content-addressed, see {@link ImageStore}) and legacy
+ * {@code filesDir/entry_*} files against the image hashes and paths of the given entries, and
+ * resets the store's reference counts to match; references taken or dropped while the
+ * collection runs are kept (see {@link ImageStore#beginRecount()}). Unreferenced files are
+ * deleted on the disk executor in batches, so other disk work can run in between on large
+ * stores.</p>
+ */
+public class ImageGarbageCollector {
+
+    private static final String TAG = "ImageGC";
+
+    /** Files deleted before yielding the disk executor to other work. */
+    private static final int BATCH_SIZE = 50;
+
+    /** Files newer than this are skipped: they may belong to an import that isn't saved yet. */
+    private static final long GRACE_PERIOD_MS = 60 * 60 * 1000;
+
+    private static final String LEGACY_PREFIX = "entry_";
+
+    public interface Callback {
+        /** Called on the main thread once every batch has run. */
+        void onCollected(int filesDeleted, long bytesReclaimed);
+    }
+
+    private final Context appContext;
+
+    public ImageGarbageCollector(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Starts a collection in the background.
+     *
+     * @param liveEntries every entry of the current user; anything they don't reference is deleted
+     * @param callback    called when done; can be null
+     */
+    public void collect(List<DiaryEntry> liveEntries, Callback callback) {
+        // Capture the references on the calling thread; the list may change afterwards.
+        // Changes to the store's counts from here on are applied on top of this snapshot
+        ImageStore store = ImageStore.getInstance(appContext);
+        ImageStore.Recount recount = store.beginRecount();
+        Map<String, Integer> refCounts = new HashMap<>();
+        Set<String> legacyPaths = new HashSet<>();
+        for (DiaryEntry entry : liveEntries) {
+            if (entry.getImageHash() != null) {
+                Integer count = refCounts.get(entry.getImageHash());
+                refCounts.put(entry.getImageHash(), count == null ? 1 : count + 1);
+            }
+            if (entry.getImagePath() != null) {
+                legacyPaths.add(entry.getImagePath());
+            }
+        }
+
+        AppExecutors.diskIO().execute(() -> {
+            store.finishRecount(recount, refCounts);
+
+            List<File> orphans = findOrphans(store, refCounts.keySet(), legacyPaths);
+            Log.d(TAG, "Found " + orphans.size() + " unreferenced image files");
+            deleteBatch(orphans, 0, 0, 0L, callback);
+        });
+    }
+
+    private List<File> findOrphans(ImageStore store, Set<String> hashes, Set<String> legacyPaths) {
+        long cutoff = System.currentTimeMillis() - GRACE_PERIOD_MS;
+        List<File> orphans = new ArrayList<>();
+
+        File[] stored = store.getImageDir().listFiles();
+        if (stored != null) {
+            for (File file : stored) {
+                if (file.lastModified() > cutoff) continue;
+                String hash = keyOf(file.getName());
+                // Also kept when acquired since the snapshot
+                if (!hashes.contains(hash) && store.getRefCount(hash) == 0) {
+                    orphans.add(file);
+                }
+            }
+        }
+
+        File[] legacy = appContext.getFilesDir().listFiles(
+                (dir, name) -> name.startsWith(LEGACY_PREFIX));
+        if (legacy != null) {
+            for (File file : legacy) {
+                if (file.isDirectory() || file.lastModified() > cutoff) continue;
+                if (!isLegacyReferenced(file, legacyPaths)) {
+                    orphans.add(file);
+                }
+            }
+        }
+        return orphans;
+    }
+
+    /** A legacy thumbnail is referenced when the image it belongs to is. */
+    private static boolean isLegacyReferenced(File file, Set<String> legacyPaths) {
+        String path = file.getAbsolutePath();
+        if (legacyPaths.contains(path)) return true;
+        for (String referenced : legacyPaths) {
+            if (path.equals(ImageImporter.thumbnailPathFor(referenced))) return true;
+        }
+        return false;
+    }
+
+    /** "abc123_thumb.webp" and "abc123.webp" both belong to hash "abc123". */
+    private static String keyOf(String fileName) {
+        int end = fileName.length();
+        int underscore = fileName.indexOf('_');
+        int dot = fileName.indexOf('.');
+        if (underscore >= 0) end = Math.min(end, underscore);
+        if (dot >= 0) end = Math.min(end, dot);
+        return fileName.substring(0, end);
+    }
+
+    private void deleteBatch(List<File> orphans, int from, int deleted, long bytes, Callback callback) {
+        ImageStore store = ImageStore.getInstance(appContext);
+        ImageLoader loader = ImageLoader.getInstance(appContext);
+        int to = Math.min(from + BATCH_SIZE, orphans.size());
+        for (int i = from; i < to; i++) {
+            File file = orphans.get(i);
+            long length = file.length();
+            boolean stored = store.getImageDir().equals(file.getParentFile());
+            String hash = keyOf(file.getName());
+            if (stored ? store.deleteIfUnreferenced(file, hash) : file.delete()) {
+                loader.invalidate(file.getPath());
+                deleted++;
+                bytes += length;
+            } else if (!stored || store.getRefCount(hash) == 0) {
+                // Stored files acquired again since they were found are kept on purpose
+                Log.w(TAG, "Could not delete " + file.getName());
+            }
+        }
+
+        if (to < orphans.size()) {
+            int deletedSoFar = deleted;
+            long bytesSoFar = bytes;
+            AppExecutors.diskIO().execute(() -> deleteBatch(orphans, to, deletedSoFar, bytesSoFar, callback));
+            return;
+        }
+
+        Log.d(TAG, "Deleted " + deleted + " files, reclaimed " + bytes / 1024 + " KB");
+        if (callback != null) {
+            int filesDeleted = deleted;
+            long bytesReclaimed = bytes;
+            AppExecutors.runOnMain(() -> callback.onCollected(filesDeleted, bytesReclaimed));
+        }
+    }
+}
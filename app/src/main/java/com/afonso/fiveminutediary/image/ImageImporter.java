@@ -0,0 +1,237 @@
+package com.afonso.fiveminutediary.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.media.ThumbnailUtils;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Decodes and encodes imported images. Used by {@link ImageStore}; never runs on the main thread.
+ *
+ * <p>The source is decoded at a bounded size ({@link ImageDecoder} target size on API 28+,
+ * {@code inSampleSize} plus a final scale below that), rotated according to its EXIF
+ * orientation, and written as lossy WebP (API 30+) or JPEG. A square thumbnail is written
+ * next to it for list rows.</p>
+ */
+public class ImageImporter {
+
+    private static final String TAG = "ImageImporter";
+
+    /** Longest edge of the stored image, in pixels. */
+    public static final int MAX_DIMENSION = 2048;
+
+    /** Edge of the square thumbnail, in pixels. */
+    public static final int THUMBNAIL_SIZE = 256;
+
+    private static final int IMAGE_QUALITY = 85;
+    private static final int THUMBNAIL_QUALITY = 80;
+
+    private static final String THUMBNAIL_SUFFIX = "_thumb";
+
+    /** Result of a successful encode. */
+    static final class Result {
+        final int width;
+        final int height;
+
+        /** The decoded image, so the caller can show it without decoding the file again. */
+        final Bitmap bitmap;
+
+        Result(int width, int height, Bitmap bitmap) {
+            this.width = width;
+            this.height = height;
+            this.bitmap = bitmap;
+        }
+    }
+
+    private ImageImporter() {
+    }
+
+    /**
+     * Decodes source at a bounded size and writes the image and its thumbnail.
+     * Blocking; call from a background thread.
+     */
+    static Result encode(File source, File imageFile, File thumbnailFile) throws IOException {
+        long start = System.nanoTime();
+
+        Bitmap bitmap = decodeBounded(source, MAX_DIMENSION);
+        if (bitmap == null) {
+            throw new IOException("Could not decode " + source.getName());
+        }
+
+        writeAtomically(bitmap, imageFile, IMAGE_QUALITY);
+
+        Bitmap thumbnail = ThumbnailUtils.extractThumbnail(bitmap, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        writeAtomically(thumbnail, thumbnailFile, THUMBNAIL_QUALITY);
+        if (thumbnail != bitmap) {
+            thumbnail.recycle();
+        }
+
+        Log.d(TAG, "Encoded " + bitmap.getWidth() + "x" + bitmap.getHeight() + " ("
+                + imageFile.length() / 1024 + " KB) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new Result(bitmap.getWidth(), bitmap.getHeight(), bitmap);
+    }
+
+    /** Extension matching {@link #compressFormat()}. */
+    static String fileExtension() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? ".webp" : ".jpg";
+    }
+
+    /**
+     * Returns the thumbnail path that belongs to an image written next to it,
+     * e.g. {@code entry_x.jpg -> entry_x_thumb.jpg}.
+     */
+    public static String thumbnailPathFor(String imagePath) {
+        if (imagePath == null) return null;
+        int dot = imagePath.lastIndexOf('.');
+        int slash = imagePath.lastIndexOf(File.separatorChar);
+        if (dot <= slash) return imagePath + THUMBNAIL_SUFFIX;
+        return imagePath.substring(0, dot) + THUMBNAIL_SUFFIX + imagePath.substring(dot);
+    }
+
+    /**
+     * Deletes an image and its thumbnail, if present. Safe to call with null.
+     */
+    public static void deleteImage(String imagePath) {
+        if (imagePath == null) return;
+        File image = new File(imagePath);
+        if (image.exists() && !image.delete()) {
+            Log.w(TAG, "Could not delete " + imagePath);
+        }
+        File thumbnail = new File(thumbnailPathFor(imagePath));
+        if (thumbnail.exists() && !thumbnail.delete()) {
+            Log.w(TAG, "Could not delete " + thumbnail.getPath());
+        }
+    }
+
+    /**
+     * Decodes file so that its longest edge is at most maxDimension, upright per EXIF.
+     */
+    static Bitmap decodeBounded(File file, int maxDimension) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // ImageDecoder applies the EXIF orientation itself
+            ImageDecoder.Source source = ImageDecoder.createSource(file);
+            return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+                int width = info.getSize().getWidth();
+                int height = info.getSize().getHeight();
+                float scale = Math.min(1f, (float) maxDimension / Math.max(width, height));
+                decoder.setTargetSize(Math.max(1, Math.round(width * scale)),
+                        Math.max(1, Math.round(height * scale)));
+                // Software memory so the bitmap can be compressed and thumbnailed
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            });
+        }
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        int orientation = new ExifInterface(file.getPath()).getAttributeInt(
+                ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        return scaleAndRotate(bitmap, maxDimension, orientation);
+    }
+
+    /**
+     * Largest power-of-two sample size that keeps the longest edge at or above maxDimension,
+     * so the final scale step only ever shrinks.
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int sampleSize = 1;
+        int longest = Math.max(width, height);
+        while (longest / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scales the bitmap down to maxDimension and applies the EXIF orientation in one pass.
+     * Recycles the input if a new bitmap was created.
+     */
+    static Bitmap scaleAndRotate(Bitmap bitmap, int maxDimension, int orientation) {
+        Matrix matrix = new Matrix();
+
+        float scale = Math.min(1f, (float) maxDimension / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+
+        Bitmap transformed = Bitmap.createBitmap(bitmap, 0, 0,
+                bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (transformed != bitmap) {
+            bitmap.recycle();
+        }
+        return transformed;
+    }
+
+    static Bitmap.CompressFormat compressFormat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        return Bitmap.CompressFormat.JPEG;
+    }
+
+    /** Writes to a temp file first so a crash never leaves a half-written image behind. */
+    private static void writeAtomically(Bitmap bitmap, File target, int quality) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(compressFormat(), quality, out)) {
+                throw new IOException("Could not encode " + target.getName());
+            }
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Could not move image into place: " + target.getName());
+        }
+    }
+}
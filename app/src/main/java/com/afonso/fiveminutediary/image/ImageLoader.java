@@ -0,0 +1,432 @@
+package com.afonso.fiveminutediary.image;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.afonso.fiveminutediary.data.ContentHasher;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Singleton that loads entry images at the size they are displayed, with two cache tiers.
+ *
+ * <ul>
+ *   <li>Memory: a size-bounded {@link LruCache} keyed by path plus target size.</li>
+ *   <li>Disk: pre-scaled variants in {@code cacheDir/image_variants}, keyed by path,
+ *       source modification time and target size, so a replaced image never hits a stale variant.
+ *       Trimmed least recently used first once they pass {@link #MAX_VARIANT_BYTES}; an image's
+ *       variants are deleted with it through {@link #invalidateImage(String)}.</li>
+ * </ul>
+ *
+ * <p>Decoding runs on a background executor and can be cancelled through the returned
+ * {@link Request}. Full-size intermediate bitmaps are kept in a small pool and reused as
+ * {@code inBitmap} for later decodes instead of being left to the garbage collector.</p>
+ */
+public class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+
+    private static final String VARIANT_DIR = "image_variants";
+    private static final int VARIANT_QUALITY = 85;
+
+    /** Suffix of a variant still being written; renamed away once complete. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Disk space the variants may take before the least recently used are deleted. */
+    private static final long MAX_VARIANT_BYTES = 64L * 1024 * 1024;
+
+    /** What a trim brings the variants down to, so it doesn't run again on the next write. */
+    private static final long TRIM_TARGET_BYTES = MAX_VARIANT_BYTES * 3 / 4;
+
+    /** Maximum number of bitmaps kept for inBitmap reuse. */
+    private static final int MAX_POOL_SIZE = 4;
+
+    private static ImageLoader instance;
+
+    private final File variantDir;
+    private final LruCache<String, Bitmap> memoryCache;
+
+    /** Guards the variant files' total size and trims. */
+    private final Object variantLock = new Object();
+
+    /** Total bytes of the variant files; -1 until first measured. Guarded by variantLock. */
+    private long variantBytes = -1;
+
+    /** Bitmaps that are no longer displayed anywhere and can be decoded into. Guarded by itself. */
+    private final List<SoftReference<Bitmap>> reusePool = new ArrayList<>();
+
+    public interface Callback {
+        /** Called on the main thread, unless the request was cancelled. */
+        void onLoaded(Bitmap bitmap);
+
+        /** Called on the main thread when the image is missing or can't be decoded. */
+        void onFailed();
+    }
+
+    /** Handle for an in-flight load. */
+    public static final class Request {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        /** Drops the result and interrupts nothing; the decode stops at its next checkpoint. */
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private ImageLoader(Context context) {
+        variantDir = new File(context.getCacheDir(), VARIANT_DIR);
+
+        // An eighth of the heap, measured in KB
+        int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memoryCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+        };
+    }
+
+    /**
+     * Returns the singleton instance, creating it if needed.
+     *
+     * @param context any context; internally uses getApplicationContext()
+     */
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the bitmap from memory if it has already been loaded at this size, else null.
+     * Cheap enough to call while binding the first frame.
+     */
+    public Bitmap getCached(String path, int width, int height) {
+        if (path == null) return null;
+        return memoryCache.get(memoryKey(path, width, height));
+    }
+
+    /**
+     * Loads path scaled down so it just covers width x height.
+     * Memory hits are delivered synchronously; everything else is decoded in the background.
+     *
+     * @return a handle to cancel the load, e.g. when the screen is finishing
+     */
+    public Request load(String path, int width, int height, Callback callback) {
+        Request request = new Request();
+        if (path == null) {
+            callback.onFailed();
+            return request;
+        }
+
+        Bitmap cached = getCached(path, width, height);
+        if (cached != null) {
+            callback.onLoaded(cached);
+            return request;
+        }
+
+        request.future = AppExecutors.compute().submit(() -> {
+            if (request.isCancelled()) return;
+
+            Bitmap bitmap = null;
+            try {
+                bitmap = loadBlocking(path, width, height, request);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load " + path, e);
+            }
+
+            Bitmap result = bitmap;
+            AppExecutors.runOnMain(() -> {
+                if (request.isCancelled()) return;
+                if (result != null) {
+                    callback.onLoaded(result);
+                } else {
+                    callback.onFailed();
+                }
+            });
+        });
+        return request;
+    }
+
+    /**
+     * Forgets every cached variant of path, in memory and on disk. Call after the file at
+     * path has been replaced or deleted.
+     */
+    public void invalidate(String path) {
+        if (path == null) return;
+        String prefix = path + "#";
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                memoryCache.remove(key);
+            }
+        }
+        AppExecutors.diskIO().execute(() -> deleteVariants(path));
+    }
+
+    /** Forgets the variants of an image and of its thumbnail, e.g. when both are deleted. */
+    public void invalidateImage(String imagePath) {
+        if (imagePath == null) return;
+        invalidate(imagePath);
+        invalidate(ImageImporter.thumbnailPathFor(imagePath));
+    }
+
+    /**
+     * Drops the memory tier, e.g. on low memory. Disk variants are kept. Called by
+     * {@link com.afonso.fiveminutediary.DiaryApplication#onTrimMemory(int)}.
+     */
+    public void trimMemory() {
+        memoryCache.evictAll();
+        synchronized (reusePool) {
+            reusePool.clear();
+        }
+    }
+
+    private Bitmap loadBlocking(String path, int width, int height, Request request) throws IOException {
+        File source = new File(path);
+        if (!source.exists()) return null;
+
+        String key = memoryKey(path, width, height);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) return bitmap;
+
+        // Disk tier: already scaled to this size
+        File variant = new File(variantDir, variantName(path, source.lastModified(), width, height));
+        if (variant.exists()) {
+            bitmap = decodeReusing(variant.getPath(), 1);
+            if (bitmap != null) {
+                // Marks it recently used for trimming
+                variant.setLastModified(System.currentTimeMillis());
+                memoryCache.put(key, bitmap);
+                return bitmap;
+            }
+        }
+
+        if (request.isCancelled()) return null;
+
+        // Full decode, sampled down to the nearest power of two above the target
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        int sampleSize = 1;
+        while (bounds.outWidth / (sampleSize * 2) >= width && bounds.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        Bitmap sampled = decodeReusing(path, sampleSize);
+        if (sampled == null || request.isCancelled()) {
+            if (sampled != null) release(sampled);
+            return null;
+        }
+
+        bitmap = scaleToFit(sampled, width, height);
+        if (bitmap != sampled) {
+            // The intermediate was never shown anywhere, so it can be decoded into next time
+            release(sampled);
+        }
+
+        memoryCache.put(key, bitmap);
+        writeVariant(bitmap, variant);
+        return bitmap;
+    }
+
+    /**
+     * Decodes the file, using a pooled bitmap as inBitmap when one is large enough.
+     */
+    private Bitmap decodeReusing(String path, int sampleSize) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        bounds.inSampleSize = sampleSize;
+        BitmapFactory.decodeFile(path, bounds);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+
+        if (bounds.outWidth > 0 && bounds.outHeight > 0) {
+            options.inBitmap = takeReusable(bounds.outWidth * bounds.outHeight * 4);
+        }
+
+        try {
+            return BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap turned out not to fit; decode into fresh memory instead
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    private Bitmap takeReusable(int byteCount) {
+        synchronized (reusePool) {
+            Iterator<SoftReference<Bitmap>> iterator = reusePool.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next().get();
+                if (candidate == null || candidate.isRecycled()) {
+                    iterator.remove();
+                } else if (candidate.getConfig() == Bitmap.Config.ARGB_8888
+                        && candidate.getAllocationByteCount() >= byteCount) {
+                    iterator.remove();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Offers a bitmap that is not displayed anywhere for reuse by later decodes. */
+    private void release(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) return;
+        synchronized (reusePool) {
+            if (reusePool.size() >= MAX_POOL_SIZE) {
+                reusePool.remove(0);
+            }
+            reusePool.add(new SoftReference<>(bitmap));
+        }
+    }
+
+    /**
+     * Scales the bitmap down so it still covers width x height, as centerCrop needs.
+     * Never scales up.
+     */
+    private static Bitmap scaleToFit(Bitmap bitmap, int width, int height) {
+        float scale = Math.max((float) width / bitmap.getWidth(), (float) height / bitmap.getHeight());
+        if (scale >= 1f) return bitmap;
+
+        int scaledWidth = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, scaledWidth, scaledHeight, true);
+    }
+
+    private void writeVariant(Bitmap bitmap, File variant) {
+        if (!variantDir.exists() && !variantDir.mkdirs()) return;
+
+        File temp = new File(variant.getPath() + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            bitmap.compress(ImageImporter.compressFormat(), VARIANT_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write variant " + variant.getName(), e);
+            temp.delete();
+            return;
+        }
+
+        synchronized (variantLock) {
+            // Measured before the rename, so the new file is counted once; a variant it
+            // replaces stops counting
+            long total = measuredVariantBytes() - variant.length();
+            if (!temp.renameTo(variant)) {
+                temp.delete();
+                return;
+            }
+            variantBytes = total + variant.length();
+            if (variantBytes > MAX_VARIANT_BYTES) {
+                trimVariants();
+            }
+        }
+    }
+
+    /** Total size of the variant files, measured on first use. Guarded by variantLock. */
+    private long measuredVariantBytes() {
+        if (variantBytes < 0) {
+            long total = 0;
+            File[] files = listVariants("");
+            if (files != null) {
+                for (File file : files) total += file.length();
+            }
+            variantBytes = total;
+        }
+        return variantBytes;
+    }
+
+    /** Deletes the least recently used variants until they fit TRIM_TARGET_BYTES. Guarded by variantLock. */
+    private void trimVariants() {
+        File[] files = listVariants("");
+        if (files == null) return;
+
+        // Read once: the sort mustn't see times change under it
+        long[] lastUsed = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            lastUsed[i] = files[i].lastModified();
+            order[i] = i;
+            total += files[i].length();
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastUsed[a], lastUsed[b]));
+
+        int deleted = 0;
+        for (int i = 0; i < order.length && total > TRIM_TARGET_BYTES; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                deleted++;
+            }
+        }
+        variantBytes = total;
+        Log.d(TAG, "Trimmed " + deleted + " variants, " + total / 1024 + " KB left");
+    }
+
+    /** Deletes the disk variants of path, whatever its modification time and size. */
+    private void deleteVariants(String path) {
+        String prefix = variantPrefix(path);
+        File[] files = listVariants(prefix);
+        if (files == null || files.length == 0) return;
+
+        synchronized (variantLock) {
+            for (File file : files) {
+                long length = file.length();
+                if (file.delete() && variantBytes >= 0) {
+                    variantBytes -= length;
+                }
+            }
+        }
+    }
+
+    /** Finished variants whose name starts with the prefix; files still being written are left out. */
+    private File[] listVariants(String prefix) {
+        return variantDir.listFiles((dir, name) -> name.startsWith(prefix) && !name.endsWith(TEMP_SUFFIX));
+    }
+
+    private static String memoryKey(String path, int width, int height) {
+        return path + "#" + width + "x" + height;
+    }
+
+    /**
+     * Hash of the path, then a hash of modification time and size, as hex. The path part
+     * comes first so that every variant of an image can be found by prefix.
+     */
+    private static String variantName(String path, long lastModified, int width, int height) {
+        return variantPrefix(path) + hexHashOf(lastModified + "|" + width + "x" + height);
+    }
+
+    private static String variantPrefix(String path) {
+        return hexHashOf(path) + "_";
+    }
+
+    private static String hexHashOf(String key) {
+        return Long.toHexString(ContentHasher.hashOfText(key) & Long.MAX_VALUE);
+    }
+}
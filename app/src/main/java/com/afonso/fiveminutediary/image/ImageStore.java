@@ -0,0 +1,379 @@
+package com.afonso.fiveminutediary.image;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed store for entry images.
+ *
+ * <p>Files live in {@code filesDir/images} and are named by the SHA-256 of the picked source,
+ * so attaching the same photo to several entries stores it once. Entries reference images by
+ * that hash ({@link DiaryEntry#getImageHash()}) rather than by an absolute path, which means
+ * the key stays valid on any device. A per-hash reference count decides when a file can go.</p>
+ *
+ * <p>Entries created before the store existed keep their legacy {@code imagePath};
+ * {@link #resolveImagePath(DiaryEntry)} handles both.</p>
+ */
+public class ImageStore {
+
+    private static final String TAG = "ImageStore";
+
+    private static final String IMAGE_DIR = "images";
+    private static final String PREFS_NAME = "image_store_refs";
+
+    /** Hex characters of the SHA-256 kept in file names (128 bits). */
+    private static final int HASH_LENGTH = 32;
+
+    private static final String[] KNOWN_EXTENSIONS = {".webp", ".jpg"};
+
+    private static ImageStore instance;
+
+    private final Context appContext;
+    private final File imageDir;
+    private final SharedPreferences refCounts;
+
+    /** Recounts in progress, each recording the changes made since its snapshot. Guarded by this. */
+    private final List<Recount> recounts = new ArrayList<>();
+
+    /**
+     * Result of a successful import. Holds one reference to {@link #hash}, taken by the import;
+     * the caller hands it to the entry that uses the image, or {@link #release(String)}s it.
+     */
+    public static final class StoredImage {
+        public final String hash;
+        public final int width;
+        public final int height;
+
+        /** Freshly decoded image, or null when an identical file was already stored. */
+        public final Bitmap bitmap;
+
+        StoredImage(String hash, int width, int height, Bitmap bitmap) {
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+            this.bitmap = bitmap;
+        }
+    }
+
+    /**
+     * A recount of references in progress; see {@link #beginRecount()}. Collects the references
+     * taken and dropped after the snapshot it was started with.
+     */
+    public static final class Recount {
+        private final Map<String, Integer> changes = new HashMap<>();
+
+        private Recount() {
+        }
+    }
+
+    public interface Callback {
+        /** Called on the main thread. */
+        void onStored(StoredImage image);
+
+        /** Called on the main thread. */
+        void onError(Exception e);
+    }
+
+    private ImageStore(Context context) {
+        appContext = context;
+        imageDir = new File(context.getFilesDir(), IMAGE_DIR);
+        refCounts = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the singleton instance, creating it if needed.
+     *
+     * @param context any context; internally uses getApplicationContext()
+     */
+    public static synchronized ImageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ─── Import ──────────────────────────────────────────────────────────────
+
+    /**
+     * Copies the picked image into the store on a background thread.
+     *
+     * <p>The source is hashed while it is copied to a temp file. If an image with the same hash
+     * is already stored, nothing is decoded; otherwise it is downsampled and encoded by
+     * {@link ImageImporter}. Either way the result holds a reference to the image (see
+     * {@link StoredImage}).</p>
+     */
+    public void importImage(Uri uri, Callback callback) {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                StoredImage image = importBlocking(uri);
+                AppExecutors.runOnMain(() -> callback.onStored(image));
+            } catch (Exception e) {
+                Log.e(TAG, "Image import failed", e);
+                AppExecutors.runOnMain(() -> callback.onError(e));
+            }
+        });
+    }
+
+    private StoredImage importBlocking(Uri uri) throws IOException {
+        try (InputStream in = appContext.getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Could not open " + uri);
+            return importBlocking(in, null);
+        }
+    }
+
+    /**
+     * Stores the image read from in on the calling thread, which must not be the main thread.
+     * The stream is read to the end but not closed.
+     *
+     * @param in        image bytes
+     * @param knownHash key the image already has in another store (e.g. from a backup archive),
+     *                  or null to key it by the hash of its bytes. A known hash that is already
+     *                  stored is returned without reading the stream.
+     * @return the stored image, holding one reference to it
+     */
+    public StoredImage importBlocking(InputStream in, String knownHash) throws IOException {
+        // The reference is taken before looking for the file: a release queued for the same
+        // hash checks the count before deleting, so a file found here stays
+        String hash = knownHash;
+        if (hash != null) {
+            acquire(hash);
+            File existing = findImage(hash);
+            if (existing != null) {
+                return storedImageOf(hash, existing);
+            }
+        }
+
+        try {
+            if (!imageDir.exists() && !imageDir.mkdirs()) {
+                throw new IOException("Could not create " + imageDir);
+            }
+
+            File temp = File.createTempFile("import", ".tmp", appContext.getCacheDir());
+            try {
+                String contentHash = copyAndHash(in, temp);
+                if (hash == null) {
+                    hash = contentHash;
+                    acquire(hash);
+                }
+
+                File existing = findImage(hash);
+                if (existing != null) {
+                    Log.d(TAG, "Image " + hash + " already stored, skipping decode");
+                    return storedImageOf(hash, existing);
+                }
+
+                String extension = ImageImporter.fileExtension();
+                File imageFile = new File(imageDir, hash + extension);
+                File thumbnailFile = new File(ImageImporter.thumbnailPathFor(imageFile.getPath()));
+                ImageImporter.Result result = ImageImporter.encode(temp, imageFile, thumbnailFile);
+                return new StoredImage(hash, result.width, result.height, result.bitmap);
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException | RuntimeException e) {
+            release(hash);
+            throw e;
+        }
+    }
+
+    private static StoredImage storedImageOf(String hash, File file) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), bounds);
+        return new StoredImage(hash, bounds.outWidth, bounds.outHeight, null);
+    }
+
+    private String copyAndHash(InputStream in, File target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        // Not closed: the caller owns the source stream
+        InputStream digesting = new DigestInputStream(in, digest);
+        try (OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = digesting.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        byte[] bytes = digest.digest();
+        StringBuilder hex = new StringBuilder(HASH_LENGTH);
+        for (int i = 0; i < HASH_LENGTH / 2; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // ─── Lookup ──────────────────────────────────────────────────────────────
+
+    /** Returns the stored file for hash, or null if it is not on this device. */
+    public File findImage(String hash) {
+        if (hash == null) return null;
+        for (String extension : KNOWN_EXTENSIONS) {
+            File file = new File(imageDir, hash + extension);
+            if (file.exists()) return file;
+        }
+        return null;
+    }
+
+    /**
+     * Local path of the entry's image: the stored file for its hash if present,
+     * otherwise its legacy absolute path. Null if the entry has no image.
+     */
+    public String resolveImagePath(DiaryEntry entry) {
+        File stored = findImage(entry.getImageHash());
+        if (stored != null) return stored.getPath();
+        return entry.getImagePath();
+    }
+
+    /**
+     * Hash encoded in a stored image's file name (e.g. from a backup archive),
+     * or null if the name isn't one the store writes.
+     */
+    public static String hashFromFileName(String name) {
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        if (dot <= slash) return null;
+        String hash = name.substring(slash + 1, dot);
+        if (hash.length() != HASH_LENGTH) return null;
+        for (int i = 0; i < hash.length(); i++) {
+            if (Character.digit(hash.charAt(i), 16) < 0) return null;
+        }
+        return hash;
+    }
+
+    /** Directory the store writes to. */
+    public File getImageDir() {
+        return imageDir;
+    }
+
+    // ─── Reference counting ──────────────────────────────────────────────────
+
+    /** Records one more entry referencing hash. */
+    public synchronized void acquire(String hash) {
+        if (hash == null) return;
+        recordChange(hash, 1);
+        refCounts.edit().putInt(hash, refCounts.getInt(hash, 0) + 1).apply();
+    }
+
+    /**
+     * Adds several references at once, writing the preferences a single time.
+     * Used after bulk imports instead of one {@link #acquire(String)} per entry.
+     */
+    public synchronized void acquireAll(Map<String, Integer> added) {
+        if (added.isEmpty()) return;
+        SharedPreferences.Editor editor = refCounts.edit();
+        for (Map.Entry<String, Integer> count : added.entrySet()) {
+            recordChange(count.getKey(), count.getValue());
+            editor.putInt(count.getKey(), refCounts.getInt(count.getKey(), 0) + count.getValue());
+        }
+        editor.apply();
+    }
+
+    /**
+     * Records one entry fewer referencing hash. When nobody references it any more,
+     * the image and its thumbnail are deleted in the background.
+     */
+    public synchronized void release(String hash) {
+        if (hash == null) return;
+        recordChange(hash, -1);
+        int count = refCounts.getInt(hash, 0) - 1;
+        if (count > 0) {
+            refCounts.edit().putInt(hash, count).apply();
+            return;
+        }
+
+        refCounts.edit().remove(hash).apply();
+        AppExecutors.diskIO().execute(() -> {
+            File file;
+            synchronized (ImageStore.this) {
+                // An import of the same photo may have re-acquired it in the meantime; imports
+                // acquire before looking for the file, so checking and deleting under the lock
+                // never removes a file one of them has found
+                if (getRefCount(hash) > 0) return;
+                file = findImage(hash);
+                if (file == null) return;
+                ImageImporter.deleteImage(file.getPath());
+            }
+            ImageLoader.getInstance(appContext).invalidateImage(file.getPath());
+            Log.d(TAG, "Deleted unreferenced image " + hash);
+        });
+    }
+
+    /**
+     * Starts a recount. Call at the moment the entries are counted, then pass the counts to
+     * {@link #finishRecount(Recount, Map)}; references taken or dropped in between are kept.
+     * Used by {@link ImageGarbageCollector}.
+     */
+    public synchronized Recount beginRecount() {
+        Recount recount = new Recount();
+        recounts.add(recount);
+        return recount;
+    }
+
+    /**
+     * Replaces every reference count with the given ones, counted from the entries when the
+     * recount began, plus the changes made since.
+     */
+    public synchronized void finishRecount(Recount recount, Map<String, Integer> counts) {
+        recounts.remove(recount);
+        Map<String, Integer> merged = new HashMap<>(counts);
+        for (Map.Entry<String, Integer> change : recount.changes.entrySet()) {
+            merged.merge(change.getKey(), change.getValue(), Integer::sum);
+        }
+
+        SharedPreferences.Editor editor = refCounts.edit().clear();
+        for (Map.Entry<String, Integer> count : merged.entrySet()) {
+            if (count.getValue() > 0) {
+                editor.putInt(count.getKey(), count.getValue());
+            }
+        }
+        editor.apply();
+    }
+
+    /** Guarded by this. */
+    private void recordChange(String hash, int delta) {
+        for (Recount recount : recounts) {
+            recount.changes.merge(hash, delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Deletes one of the store's files unless its hash is referenced. Checked and deleted under
+     * the lock imports take references with, like the delete queued by {@link #release(String)}.
+     */
+    synchronized boolean deleteIfUnreferenced(File file, String hash) {
+        return getRefCount(hash) <= 0 && file.delete();
+    }
+
+    /** Current reference count of hash; 0 if unknown. */
+    public synchronized int getRefCount(String hash) {
+        return hash != null ? refCounts.getInt(hash, 0) : 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.afonso.fiveminutediary.search;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+interface SearchDao {
+
+    /** Entry id and text hash of an indexed row. */
+    class IndexedRow {
+        public String entryId;
+        public long textHash;
+    }
+
+    /** Ranking data of a matching row. */
+    class MatchRow {
+        @ColumnInfo(name = "rowid")
+        public long rowId;
+        public long timestamp;
+        public byte[] matchInfo;
+    }
+
+    /** A ranked row with its highlighted snippet. */
+    class SnippetRow {
+        @ColumnInfo(name = "rowid")
+        public long rowId;
+        public String entryId;
+        public int day;
+        public long timestamp;
+        public String snippet;
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<SearchRow> rows);
+
+    @Query("DELETE FROM search_index WHERE rowid IN (:rowIds)")
+    void delete(List<Long> rowIds);
+
+    @Query("DELETE FROM search_index")
+    void deleteAll();
+
+    @Query("SELECT entryId, textHash FROM search_index")
+    List<IndexedRow> indexedRows();
+
+    /** Every match with the per-phrase hit counts ranking needs; cheap compared to snippets. */
+    @Query("SELECT rowid, timestamp, matchinfo(search_index, 'pcx') AS matchInfo "
+            + "FROM search_index WHERE search_index MATCH :match")
+    List<MatchRow> match(String match);
+
+    /** Snippets for the given rows only. Matches are wrapped in \u0001 and \u0002. */
+    @Query("SELECT rowid, entryId, day, timestamp, "
+            + "snippet(search_index, char(1), char(2), '…', -1, 16) AS snippet "
+            + "FROM search_index WHERE search_index MATCH :match AND rowid IN (:rowIds)")
+    List<SnippetRow> snippets(String match, List<Long> rowIds);
+}
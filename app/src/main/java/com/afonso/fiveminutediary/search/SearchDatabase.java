@@ -0,0 +1,16 @@
+package com.afonso.fiveminutediary.search;
+
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+
+/**
+ * On-device database behind {@link SearchIndex}. It only holds data derived from Firestore,
+ * so schema changes simply drop it and the index is rebuilt on the next sync.
+ */
+@Database(entities = {SearchRow.class}, version = 1, exportSchema = false)
+abstract class SearchDatabase extends RoomDatabase {
+
+    static final String NAME = "search_index.db";
+
+    abstract SearchDao searchDao();
+}
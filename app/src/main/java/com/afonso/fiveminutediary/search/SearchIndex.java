@@ -0,0 +1,393 @@
+package com.afonso.fiveminutediary.search;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+import androidx.room.Room;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.data.ContentHasher;
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+import com.afonso.fiveminutediary.utils.DateUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-device full-text index of the diary, kept in step with Firestore by {@link
+ * com.afonso.fiveminutediary.data.DataRepository}.
+ *
+ * <p>Entries live in an SQLite FTS4 table. Writes are applied on {@link AppExecutors#diskIO()}
+ * in submission order; each indexed row remembers a hash of its text, so re-syncing a list
+ * that hasn't changed only costs the hashing. Searches run on {@link AppExecutors#compute()}:
+ * every word typed is matched as a prefix, rows are ranked with matchinfo, and snippets are
+ * built only for the rows that are returned.</p>
+ *
+ * <p>Entries outside the repository's retention window are only held as summaries; their
+ * rows stay as they were indexed while the full text was at hand, and summaries never
+ * replace them.</p>
+ *
+ * <p>The index holds the signed-in user's entries only and is cleared on logout.</p>
+ */
+public final class SearchIndex {
+
+    private static final String TAG = "SearchIndex";
+
+    /** Most results returned by a search. */
+    public static final int MAX_RESULTS = 50;
+
+    /** Rows deleted per statement, well below SQLite's bound-variable limit. */
+    private static final int DELETE_CHUNK = 500;
+
+    private static final char MATCH_START = '\u0001';
+    private static final char MATCH_END = '\u0002';
+
+    private static SearchIndex instance;
+
+    public interface Callback {
+        /**
+         * Called on the main thread. {@code query} is the text that was searched, so callers
+         * typing ahead can drop results for a query they've moved past.
+         */
+        void onResults(String query, List<SearchResult> results);
+    }
+
+    private final SearchDatabase database;
+    private final SearchDao dao;
+    private final int highlightColor;
+
+    /** Text hash of every indexed entry, by entry id. Loaded on first write; diskIO only. */
+    private Map<String, Long> indexedHashes = null;
+
+    private SearchIndex(Context context) {
+        database = Room.databaseBuilder(context, SearchDatabase.class, SearchDatabase.NAME)
+                .fallbackToDestructiveMigration(true)
+                .build();
+        dao = database.searchDao();
+        highlightColor = ContextCompat.getColor(context, R.color.search_highlight);
+    }
+
+    /**
+     * Returns the singleton instance, creating it if needed. The database is opened on first use.
+     *
+     * @param context any context; internally uses getApplicationContext()
+     */
+    public static synchronized SearchIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new SearchIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ─── Writes ───────────────────────────────────────────────────────────────
+
+    /**
+     * Adds or refreshes one entry. Entries without an id or text are removed instead;
+     * summaries are ignored.
+     */
+    public void index(DiaryEntry entry) {
+        if (!entry.hasFullText()) return;
+        SearchRow row = rowOf(entry);
+        if (row == null) {
+            if (entry.getId() != null) remove(entry.getId());
+            return;
+        }
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                Map<String, Long> hashes = indexedHashes();
+                row.textHash = ContentHasher.hashOfText(row.text);
+                Long indexed = hashes.get(row.entryId);
+                if (indexed == null || indexed != row.textHash) {
+                    dao.upsert(Collections.singletonList(row));
+                    hashes.put(row.entryId, row.textHash);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to index entry " + row.entryId, e);
+            }
+        });
+    }
+
+    /** Removes one entry. */
+    public void remove(String entryId) {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                if (indexedHashes().remove(entryId) != null) {
+                    dao.delete(Collections.singletonList(rowIdOf(entryId)));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to remove entry " + entryId, e);
+            }
+        });
+    }
+
+    /**
+     * Makes the index match a complete entry list: new and edited entries are indexed, entries
+     * missing from the list are removed. Summaries in the list keep their rows. Only pass
+     * lists known to hold every entry.
+     */
+    public void sync(List<DiaryEntry> entries) {
+        apply(entries, true);
+    }
+
+    /**
+     * Indexes the new and edited entries of a list that may not hold every entry, e.g. one
+     * loaded offline. Nothing is removed.
+     */
+    public void update(List<DiaryEntry> entries) {
+        apply(entries, false);
+    }
+
+    private void apply(List<DiaryEntry> entries, boolean removeMissing) {
+        // Fields are captured here so later edits to the entries can't race the indexing
+        List<SearchRow> rows = new ArrayList<>(entries.size());
+        Set<String> summarized = new HashSet<>();
+        for (DiaryEntry entry : entries) {
+            if (!entry.hasFullText()) {
+                summarized.add(entry.getId());
+                continue;
+            }
+            SearchRow row = rowOf(entry);
+            if (row != null) rows.add(row);
+        }
+
+        AppExecutors.diskIO().execute(() -> {
+            long start = System.nanoTime();
+            try {
+                Map<String, Long> hashes = indexedHashes();
+                List<SearchRow> changed = new ArrayList<>();
+                Set<String> present = new HashSet<>();
+                for (SearchRow row : rows) {
+                    present.add(row.entryId);
+                    row.textHash = ContentHasher.hashOfText(row.text);
+                    Long indexed = hashes.get(row.entryId);
+                    if (indexed == null || indexed != row.textHash) {
+                        changed.add(row);
+                    }
+                }
+                List<String> stale = new ArrayList<>();
+                if (removeMissing) {
+                    for (String id : hashes.keySet()) {
+                        if (!present.contains(id) && !summarized.contains(id)) stale.add(id);
+                    }
+                }
+                if (changed.isEmpty() && stale.isEmpty()) return;
+
+                database.runInTransaction(() -> {
+                    dao.upsert(changed);
+                    deleteRows(stale);
+                });
+                for (SearchRow row : changed) hashes.put(row.entryId, row.textHash);
+                for (String id : stale) hashes.remove(id);
+
+                Log.d(TAG, "Synced: " + changed.size() + " indexed, " + stale.size() + " removed in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to sync index", e);
+            }
+        });
+    }
+
+    /** Empties the index, e.g. on logout. */
+    public void clear() {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                dao.deleteAll();
+                indexedHashes = new HashMap<>();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to clear index", e);
+            }
+        });
+    }
+
+    private Map<String, Long> indexedHashes() {
+        if (indexedHashes == null) {
+            Map<String, Long> hashes = new HashMap<>();
+            for (SearchDao.IndexedRow row : dao.indexedRows()) {
+                hashes.put(row.entryId, row.textHash);
+            }
+            indexedHashes = hashes;
+        }
+        return indexedHashes;
+    }
+
+    private void deleteRows(List<String> entryIds) {
+        List<Long> rowIds = new ArrayList<>(Math.min(entryIds.size(), DELETE_CHUNK));
+        for (String id : entryIds) {
+            rowIds.add(rowIdOf(id));
+            if (rowIds.size() == DELETE_CHUNK) {
+                dao.delete(rowIds);
+                rowIds.clear();
+            }
+        }
+        if (!rowIds.isEmpty()) dao.delete(rowIds);
+    }
+
+    /** Row for the entry with its hash still unset, or null if there is nothing to index. */
+    private static SearchRow rowOf(DiaryEntry entry) {
+        String id = entry.getId();
+        String text = entry.getText();
+        if (id == null || text == null || text.trim().isEmpty()) return null;
+        return new SearchRow(rowIdOf(id), id, DateUtils.epochDay(entry.getTimestamp()),
+                entry.getTimestamp(), 0, text);
+    }
+
+    /** Stable rowid for an entry id; FTS rowids must be integers. */
+    private static long rowIdOf(String entryId) {
+        return ContentHasher.hashOfText(entryId) & Long.MAX_VALUE;
+    }
+
+    // ─── Search ──────────────────────────────────────────────────────────────
+
+    /**
+     * Searches the index in the background. Every word of the query must appear in an entry,
+     * as a whole word or the start of one; case and accents are ignored. Results are ranked
+     * by how much of each word's occurrences they hold, newest first on ties.
+     *
+     * @param query    text as typed
+     * @param callback receives at most {@link #MAX_RESULTS} results; empty on no match or error
+     */
+    public void search(String query, Callback callback) {
+        String match = toMatchExpression(query);
+        if (match == null) {
+            callback.onResults(query, Collections.emptyList());
+            return;
+        }
+
+        AppExecutors.compute().execute(() -> {
+            List<SearchResult> results;
+            long start = System.nanoTime();
+            try {
+                results = searchBlocking(match);
+            } catch (Exception e) {
+                Log.e(TAG, "Search failed: " + match, e);
+                results = Collections.emptyList();
+            }
+            Log.d(TAG, "Search '" + match + "': " + results.size() + " results in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            List<SearchResult> found = results;
+            AppExecutors.runOnMain(() -> callback.onResults(query, found));
+        });
+    }
+
+    private List<SearchResult> searchBlocking(String match) {
+        List<SearchDao.MatchRow> matches = dao.match(match);
+        if (matches.isEmpty()) return Collections.emptyList();
+
+        Map<Long, Double> scores = new HashMap<>(matches.size() * 2);
+        for (SearchDao.MatchRow row : matches) {
+            scores.put(row.rowId, score(row.matchInfo));
+        }
+        matches.sort((a, b) -> {
+            int byScore = Double.compare(scores.get(b.rowId), scores.get(a.rowId));
+            return byScore != 0 ? byScore : Long.compare(b.timestamp, a.timestamp);
+        });
+
+        int count = Math.min(MAX_RESULTS, matches.size());
+        List<Long> top = new ArrayList<>(count);
+        Map<Long, Integer> rank = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            top.add(matches.get(i).rowId);
+            rank.put(matches.get(i).rowId, i);
+        }
+
+        SearchResult[] ranked = new SearchResult[count];
+        for (SearchDao.SnippetRow row : dao.snippets(match, top)) {
+            Integer position = rank.get(row.rowId);
+            if (position == null) continue;
+            ranked[position] = new SearchResult(row.entryId, row.day, row.timestamp, highlight(row.snippet));
+        }
+
+        List<SearchResult> results = new ArrayList<>(count);
+        for (SearchResult result : ranked) {
+            if (result != null) results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Sum over the query's words of this row's share of all their hits, from matchinfo 'pcx':
+     * phrase count, column count, then (hits in row, hits in all rows, rows with hits) for every
+     * phrase and column. A rare word found here outweighs a common one.
+     */
+    private static double score(byte[] matchInfo) {
+        if (matchInfo == null) return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double score = 0;
+        for (int i = 0; i < phrases * columns; i++) {
+            int offset = 8 + i * 12;
+            int hitsInRow = buffer.getInt(offset);
+            int hitsInAll = buffer.getInt(offset + 4);
+            if (hitsInAll > 0) score += (double) hitsInRow / hitsInAll;
+        }
+        return score;
+    }
+
+    /** Turns the snippet's match markers into spans. */
+    private CharSequence highlight(String snippet) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        if (snippet == null) return text;
+
+        int matchStart = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == MATCH_START) {
+                matchStart = text.length();
+            } else if (c == MATCH_END) {
+                if (matchStart >= 0 && matchStart < text.length()) {
+                    text.setSpan(new StyleSpan(Typeface.BOLD), matchStart, text.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    text.setSpan(new BackgroundColorSpan(highlightColor), matchStart, text.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                matchStart = -1;
+            } else {
+                // Snippets are shown on a few lines; paragraph breaks would waste them
+                text.append(c == '\n' ? ' ' : c);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * FTS query for the typed text: each run of letters and digits becomes a prefix term, so
+     * punctuation and FTS operators in the input are never interpreted. Null if nothing is left.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) return null;
+        StringBuilder match = new StringBuilder();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.codePointAt(i))) {
+                i += Character.charCount(query.codePointAt(i));
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.codePointAt(i))) {
+                i += Character.charCount(query.codePointAt(i));
+            }
+            if (i > start) {
+                if (match.length() > 0) match.append(' ');
+                // Lower case, so "and"/"or"/"not" are searched for rather than taken as operators
+                match.append(query.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+}
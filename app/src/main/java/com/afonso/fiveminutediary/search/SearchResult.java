@@ -0,0 +1,22 @@
+package com.afonso.fiveminutediary.search;
+
+/** One ranked search hit. */
+public final class SearchResult {
+
+    public final String entryId;
+
+    /** {@code DateUtils} epoch day of the entry. */
+    public final int day;
+
+    public final long timestamp;
+
+    /** Excerpt around the matches, with the matched words highlighted. */
+    public final CharSequence snippet;
+
+    SearchResult(String entryId, int day, long timestamp, CharSequence snippet) {
+        this.entryId = entryId;
+        this.day = day;
+        this.timestamp = timestamp;
+        this.snippet = snippet;
+    }
+}
@@ -0,0 +1,53 @@
+package com.afonso.fiveminutediary.search;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * One entry in the full-text index.
+ *
+ * <p>Only the text is tokenized. The unicode61 tokenizer folds case and strips diacritics, so
+ * "coração" is found by "coracao" and the other way round, in both the text and the query.
+ * Prefix indexes for two and three characters keep search-as-you-type lookups cheap.</p>
+ */
+@Fts4(
+        tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        tokenizerArgs = {"remove_diacritics=1"},
+        notIndexed = {"entryId", "day", "timestamp", "textHash"},
+        prefix = {2, 3}
+)
+@Entity(tableName = "search_index")
+class SearchRow {
+
+    /** Derived from entryId, so an entry maps to the same row without a lookup. */
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public long rowId;
+
+    @NonNull
+    public String entryId;
+
+    /** {@code DateUtils} epoch day of the entry. */
+    public int day;
+
+    public long timestamp;
+
+    /** Hash of the indexed text; lets unchanged entries skip re-indexing. */
+    public long textHash;
+
+    @NonNull
+    public String text;
+
+    SearchRow(long rowId, @NonNull String entryId, int day, long timestamp, long textHash, @NonNull String text) {
+        this.rowId = rowId;
+        this.entryId = entryId;
+        this.day = day;
+        this.timestamp = timestamp;
+        this.textHash = textHash;
+        this.text = text;
+    }
+}
@@ -0,0 +1,17 @@
+package com.afonso.fiveminutediary.stats;
+
+/** Headline numbers of the diary, derived from the repository's entry list. */
+public final class EntryStats {
+
+    public static final EntryStats EMPTY = new EntryStats(0, 0);
+
+    public final int entryCount;
+
+    /** Consecutive days written, counting back from today (or yesterday if today is still blank). */
+    public final int streak;
+
+    public EntryStats(int entryCount, int streak) {
+        this.entryCount = entryCount;
+        this.streak = streak;
+    }
+}
@@ -0,0 +1,135 @@
+package com.afonso.fiveminutediary.stats;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.DateUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Words written per day, kept as one {@code int[366]} per calendar year (index = day of
+ * year - 1), for the profile's year heatmap.
+ *
+ * <p>Maintained by {@link com.afonso.fiveminutediary.data.DataRepository} alongside its entry
+ * cache: each entry's contribution (day and word count) is remembered by id, so an add, edit
+ * or delete only moves that entry's words, and switching years is an array lookup instead of
+ * a pass over the entries. Main thread only, like the repository's other state.</p>
+ */
+public final class WritingCalendar {
+
+    /** Length of every year's array; leap years use all of it. */
+    public static final int DAYS_PER_YEAR = 366;
+
+    /** Words per day, by year. */
+    private final Map<Integer, int[]> years = new HashMap<>();
+
+    /** Epoch day (high 32 bits) and word count (low 32 bits) each entry added, by entry id. */
+    private final Map<String, Long> contributions = new HashMap<>();
+
+    private int firstYear = Integer.MAX_VALUE;
+    private int lastYear = Integer.MIN_VALUE;
+
+    /** Replaces everything with the given complete entry list. */
+    public void rebuild(List<DiaryEntry> entries) {
+        clear();
+        for (DiaryEntry entry : entries) {
+            put(entry);
+        }
+    }
+
+    /** Adds an entry, or moves its words if it was already counted. Entries without an id are ignored. */
+    public void put(DiaryEntry entry) {
+        if (entry.getId() == null) return;
+        int day = DateUtils.epochDay(entry.getTimestamp());
+        int words = entry.countWords();
+
+        Long previous = contributions.put(entry.getId(), pack(day, words));
+        if (previous != null) {
+            add(dayOf(previous), -wordsOf(previous));
+        }
+        add(day, words);
+    }
+
+    /** Removes an entry's words. */
+    public void remove(String entryId) {
+        Long previous = contributions.remove(entryId);
+        if (previous != null) {
+            add(dayOf(previous), -wordsOf(previous));
+        }
+    }
+
+    public void clear() {
+        years.clear();
+        contributions.clear();
+        firstYear = Integer.MAX_VALUE;
+        lastYear = Integer.MIN_VALUE;
+    }
+
+    /** True if no entry has been counted. */
+    public boolean isEmpty() {
+        return contributions.isEmpty();
+    }
+
+    /** Earliest year with an entry, or the current year when empty. */
+    public int getFirstYear() {
+        return isEmpty() ? currentYear() : Math.min(firstYear, currentYear());
+    }
+
+    /** Latest year with an entry, never before the current year. */
+    public int getLastYear() {
+        return isEmpty() ? currentYear() : Math.max(lastYear, currentYear());
+    }
+
+    /**
+     * Copies the year's words per day into {@code out}, which must hold {@link #DAYS_PER_YEAR}
+     * ints. Days without entries are 0.
+     *
+     * @return total words written that year
+     */
+    public int copyYear(int year, int[] out) {
+        int[] days = years.get(year);
+        if (days == null) {
+            Arrays.fill(out, 0, DAYS_PER_YEAR, 0);
+            return 0;
+        }
+        System.arraycopy(days, 0, out, 0, DAYS_PER_YEAR);
+        int total = 0;
+        for (int words : days) total += words;
+        return total;
+    }
+
+    private void add(int epochDay, int words) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        int[] days = years.get(year);
+        if (days == null) {
+            if (words <= 0) return;
+            days = new int[DAYS_PER_YEAR];
+            years.put(year, days);
+        }
+        days[date.getDayOfYear() - 1] += words;
+
+        // Bounds only widen; a year emptied by deletes still shows, just blank
+        firstYear = Math.min(firstYear, year);
+        lastYear = Math.max(lastYear, year);
+    }
+
+    private static int currentYear() {
+        return LocalDate.ofEpochDay(DateUtils.today()).getYear();
+    }
+
+    private static long pack(int epochDay, int words) {
+        return ((long) epochDay << 32) | (words & 0xffffffffL);
+    }
+
+    private static int dayOf(long contribution) {
+        return (int) (contribution >> 32);
+    }
+
+    private static int wordsOf(long contribution) {
+        return (int) contribution;
+    }
+}
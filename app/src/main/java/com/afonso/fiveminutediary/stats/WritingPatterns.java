@@ -0,0 +1,202 @@
+package com.afonso.fiveminutediary.stats;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.data.UserProfile;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * When the user writes: how many writing sessions fell in each hour of the day and each day
+ * of the week, and the time of day derived from them.
+ *
+ * <p>A writing session is a clock hour with at least one save. The editor autosaves every
+ * few seconds while typing, so counting saves would weigh an hour by how long the user
+ * typed in it; sessions count it once. Only the two small histograms and the hour of the
+ * last session are stored on the {@link UserProfile}; nothing here ever needs the entries
+ * again once seeded.</p>
+ */
+public final class WritingPatterns {
+
+    public static final String MORNING = "morning";
+    public static final String AFTERNOON = "afternoon";
+    public static final String EVENING = "evening";
+    public static final String NIGHT = "night";
+
+    /** First hour of each period; night wraps past midnight. */
+    private static final int MORNING_START = 5;
+    private static final int AFTERNOON_START = 12;
+    private static final int EVENING_START = 17;
+    private static final int NIGHT_START = 22;
+
+    private static final int HOURS = 24;
+    private static final int WEEKDAYS = 7;
+
+    // Profile fields
+    public static final String FIELD_HOURS = "hourHistogram";
+    public static final String FIELD_WEEKDAYS = "weekdayHistogram";
+    public static final String FIELD_LAST_WRITE_HOUR = "lastWriteHour";
+    public static final String FIELD_FAVORITE_TIME = "favoriteWritingTime";
+
+    private final int[] hours = new int[HOURS];
+
+    /** Sunday first, like {@code R.array.day_names}. */
+    private final int[] weekdays = new int[WEEKDAYS];
+
+    private long lastWriteHour = Long.MIN_VALUE;
+
+    private WritingPatterns() {
+    }
+
+    /** Patterns stored on the profile; empty if it has none yet. */
+    public static WritingPatterns fromProfile(UserProfile profile) {
+        WritingPatterns patterns = new WritingPatterns();
+        copy(profile.getHourHistogram(), patterns.hours);
+        copy(profile.getWeekdayHistogram(), patterns.weekdays);
+        if (profile.getHourHistogram() != null) {
+            patterns.lastWriteHour = profile.getLastWriteHour();
+        }
+        return patterns;
+    }
+
+    /**
+     * Patterns seeded from existing entries, for profiles that predate them. An entry's
+     * timestamp is its last save, so this counts one session per entry.
+     */
+    public static WritingPatterns fromEntries(List<DiaryEntry> entries) {
+        WritingPatterns patterns = new WritingPatterns();
+        long latest = Long.MIN_VALUE;
+        for (DiaryEntry entry : entries) {
+            patterns.lastWriteHour = Long.MIN_VALUE;
+            patterns.recordSession(entry.getTimestamp());
+            latest = Math.max(latest, patterns.lastWriteHour);
+        }
+        patterns.lastWriteHour = latest;
+        return patterns;
+    }
+
+    private static void copy(List<? extends Number> from, int[] to) {
+        if (from == null) return;
+        for (int i = 0; i < Math.min(from.size(), to.length); i++) {
+            Number value = from.get(i);
+            to[i] = value != null ? value.intValue() : 0;
+        }
+    }
+
+    /**
+     * Local epoch hour of a time: the clock hour a save at that time belongs to. Two saves
+     * in the same one are the same writing session.
+     */
+    public static long sessionHourOf(long timestamp) {
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault());
+        return time.toLocalDate().toEpochDay() * HOURS + time.getHour();
+    }
+
+    /**
+     * Counts a save made at the given time as a writing session, unless the last session
+     * counted is in the same clock hour.
+     *
+     * @return true if the histograms changed
+     */
+    public boolean recordSession(long timestamp) {
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault());
+        long hour = sessionHourOf(timestamp);
+        if (hour == lastWriteHour) return false;
+
+        lastWriteHour = hour;
+        hours[time.getHour()]++;
+        weekdays[time.getDayOfWeek().getValue() % WEEKDAYS]++;
+        return true;
+    }
+
+    /** True if no session has been counted. */
+    public boolean isEmpty() {
+        for (int count : hours) {
+            if (count > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@link #MORNING}, {@link #AFTERNOON}, {@link #EVENING} or {@link #NIGHT}: the period of
+     * the day with the most sessions. Null if there are none.
+     */
+    public String favoriteWritingTime() {
+        if (isEmpty()) return null;
+        int morning = sum(MORNING_START, AFTERNOON_START);
+        int afternoon = sum(AFTERNOON_START, EVENING_START);
+        int evening = sum(EVENING_START, NIGHT_START);
+        int night = sum(NIGHT_START, HOURS) + sum(0, MORNING_START);
+
+        // Ties go to the afternoon or evening
+        String favorite = MORNING;
+        int best = morning;
+        if (afternoon >= best) { favorite = AFTERNOON; best = afternoon; }
+        if (evening >= best) { favorite = EVENING; best = evening; }
+        if (night > best) { favorite = NIGHT; }
+        return favorite;
+    }
+
+    private int sum(int fromHour, int toHour) {
+        int total = 0;
+        for (int hour = fromHour; hour < toHour; hour++) total += hours[hour];
+        return total;
+    }
+
+    /** Hour of day (0-23) with the most sessions, or -1 if there are none. */
+    public int peakHour() {
+        return indexOfMax(hours);
+    }
+
+    /** Day of week with the most sessions, Sunday = 0, or -1 if there are none. */
+    public int peakWeekday() {
+        return indexOfMax(weekdays);
+    }
+
+    private static int indexOfMax(int[] counts) {
+        int best = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && (best < 0 || counts[i] > counts[best])) best = i;
+        }
+        return best;
+    }
+
+    /** Writing sessions per hour of day; a copy. */
+    public int[] getHours() {
+        return hours.clone();
+    }
+
+    /** Writing sessions per day of week, Sunday first; a copy. */
+    public int[] getWeekdays() {
+        return weekdays.clone();
+    }
+
+    /** Stores the histograms and the derived time of day on the profile object. */
+    public void writeTo(UserProfile profile) {
+        profile.setHourHistogram(toList(hours));
+        profile.setWeekdayHistogram(toList(weekdays));
+        profile.setLastWriteHour(lastWriteHour);
+        profile.setFavoriteWritingTime(favoriteWritingTime());
+    }
+
+    /** The profile fields {@link #writeTo} sets, for a partial Firestore update. */
+    public Map<String, Object> toFields() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_HOURS, toList(hours));
+        fields.put(FIELD_WEEKDAYS, toList(weekdays));
+        fields.put(FIELD_LAST_WRITE_HOUR, lastWriteHour);
+        fields.put(FIELD_FAVORITE_TIME, favoriteWritingTime());
+        return fields;
+    }
+
+    private static List<Integer> toList(int[] counts) {
+        List<Integer> list = new ArrayList<>(counts.length);
+        for (int count : counts) list.add(count);
+        return list;
+    }
+}
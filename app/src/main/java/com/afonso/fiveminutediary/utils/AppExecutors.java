@@ -0,0 +1,65 @@
+package com.afonso.fiveminutediary.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared thread pools for work that must stay off the main thread.
+ *
+ * <p>{@link #diskIO()} is a single thread so file operations run in submission order.
+ * {@link #compute()} is a small pool for CPU-bound work such as building list rows.
+ * {@link #backup()} runs long exports and imports one at a time, so they never hold up
+ * the other two.</p>
+ */
+public final class AppExecutors {
+
+    private static final ExecutorService DISK_IO =
+            Executors.newSingleThreadExecutor(namedFactory("diary-io"));
+
+    private static final ExecutorService COMPUTE = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+            namedFactory("diary-compute"));
+
+    private static final ExecutorService BACKUP =
+            Executors.newSingleThreadExecutor(namedFactory("diary-backup"));
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private AppExecutors() {
+    }
+
+    /** Serial executor for disk reads and writes. */
+    public static ExecutorService diskIO() {
+        return DISK_IO;
+    }
+
+    /** Small pool for CPU-bound work. */
+    public static ExecutorService compute() {
+        return COMPUTE;
+    }
+
+    /** Serial executor for whole-diary exports and imports. */
+    public static ExecutorService backup() {
+        return BACKUP;
+    }
+
+    /** Posts the runnable to the main thread. */
+    public static void runOnMain(Runnable runnable) {
+        MAIN_HANDLER.post(runnable);
+    }
+
+    private static ThreadFactory namedFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.getAndIncrement());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.afonso.fiveminutediary.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converts timestamps to local calendar days, represented as epoch-day ints
+ * (days since 1970-01-01 in the device's time zone).
+ *
+ * <p>Comparing days becomes an int comparison. {@link #epochDay(long)} doesn't allocate
+ * once warm: it keeps a small table of periods during which the zone's UTC offset is
+ * constant (bounded by the zone's DST transitions), and only consults the zone rules for
+ * a timestamp outside all of them. Call {@link #invalidateZone()} when the device's
+ * time zone changes, or {@link #refreshZone()} when it may have.</p>
+ *
+ * <p>Day boundaries come from {@link LocalDate#atStartOfDay(ZoneId)}, so days that are
+ * 23 or 25 hours long because of DST (or start at 01:00 in zones that shift at midnight)
+ * are handled correctly. Ranges are half-open: [start of day, start of next day).</p>
+ */
+public final class DateUtils {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /** Number of offset periods kept; enough to cover a couple of years of DST changes. */
+    private static final int TABLE_SIZE = 8;
+
+    /** A period [startMillis, endMillis) during which the zone's offset is constant. */
+    private static final class OffsetPeriod {
+        final long startMillis;
+        final long endMillis;
+        final long offsetMillis;
+
+        OffsetPeriod(long startMillis, long endMillis, long offsetMillis) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.offsetMillis = offsetMillis;
+        }
+    }
+
+    private static volatile ZoneId zone = ZoneId.systemDefault();
+    private static volatile OffsetPeriod[] table = new OffsetPeriod[TABLE_SIZE];
+    private static int nextSlot = 0;
+
+    private DateUtils() {
+    }
+
+    /** Local epoch day of the given timestamp. */
+    public static int epochDay(long millis) {
+        OffsetPeriod[] periods = table;
+        for (OffsetPeriod period : periods) {
+            if (period != null && millis >= period.startMillis && millis < period.endMillis) {
+                return (int) Math.floorDiv(millis + period.offsetMillis, DAY_MS);
+            }
+        }
+        return (int) Math.floorDiv(millis + lookUp(millis).offsetMillis, DAY_MS);
+    }
+
+    /** Today's local epoch day. */
+    public static int today() {
+        return epochDay(System.currentTimeMillis());
+    }
+
+    /** Timestamp of the first instant of the given day. */
+    public static long startOfDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /** Timestamp of the first instant of the following day; the exclusive end of the given day. */
+    public static long endOfDayExclusive(int epochDay) {
+        return startOfDay(epochDay + 1);
+    }
+
+    /** Invalidates the cache if the device's zone differs from the one in use. */
+    public static void refreshZone() {
+        if (!ZoneId.systemDefault().equals(zone)) {
+            invalidateZone();
+        }
+    }
+
+    /** Drops the cached offsets and re-reads the device's zone. */
+    public static synchronized void invalidateZone() {
+        zone = ZoneId.systemDefault();
+        table = new OffsetPeriod[TABLE_SIZE];
+        nextSlot = 0;
+    }
+
+    /** Computes the offset period containing millis and adds it to the table. */
+    private static synchronized OffsetPeriod lookUp(long millis) {
+        ZoneRules rules = zone.getRules();
+        Instant instant = Instant.ofEpochMilli(millis);
+        long offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+
+        // Transitions fall on whole seconds; nudging past millis makes one at exactly millis "previous"
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusNanos(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        long start = previous != null ? previous.toEpochSecond() * 1000L : Long.MIN_VALUE;
+        long end = next != null ? next.toEpochSecond() * 1000L : Long.MAX_VALUE;
+
+        OffsetPeriod period = new OffsetPeriod(start, end, offsetMillis);
+        // Copy-on-write so readers never see a half-updated table
+        OffsetPeriod[] updated = table.clone();
+        updated[nextSlot] = period;
+        nextSlot = (nextSlot + 1) % TABLE_SIZE;
+        table = updated;
+        return period;
+    }
+}
@@ -0,0 +1,103 @@
+package com.afonso.fiveminutediary.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.core.content.ContextCompat;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Reports the current time as "HH:mm" once per minute, right after the minute changes.
+ *
+ * <p>Instead of polling, the next tick is posted for the next minute boundary, so the main
+ * looper wakes once a minute and stays idle in between. The system's time-set and time-zone
+ * broadcasts re-sync it when the clock jumps; its per-minute time-tick broadcast isn't
+ * listened to, since it would wake the looper a second time each minute for nothing new.
+ * The formatter is created once, and the listener only hears about values that actually
+ * changed.</p>
+ */
+public class MinuteClock {
+
+    private static final long MINUTE_MS = 60_000;
+
+    public interface Listener {
+        void onTimeChanged(String time);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SimpleDateFormat format = new SimpleDateFormat("HH:mm", Locale.getDefault());
+    private final Date now = new Date();
+
+    private final Runnable tick = this::tick;
+
+    private final BroadcastReceiver timeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                format.setTimeZone(TimeZone.getDefault());
+                DateUtils.invalidateZone();
+            }
+            tick();
+        }
+    };
+
+    private String lastTime;
+    private boolean running = false;
+
+    public MinuteClock(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /** Reports the current time immediately and then on every minute change. */
+    public void start() {
+        if (running) return;
+        running = true;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        ContextCompat.registerReceiver(context, timeReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // The zone may have changed while stopped
+        format.setTimeZone(TimeZone.getDefault());
+        DateUtils.refreshZone();
+        lastTime = null;
+        tick();
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        context.unregisterReceiver(timeReceiver);
+        handler.removeCallbacks(tick);
+    }
+
+    private void tick() {
+        if (!running) return;
+
+        long millis = System.currentTimeMillis();
+        now.setTime(millis);
+        String time = format.format(now);
+        if (!time.equals(lastTime)) {
+            lastTime = time;
+            listener.onTimeChanged(time);
+        }
+
+        // Land just past the boundary so the next format already shows the new minute
+        handler.removeCallbacks(tick);
+        long untilNextMinute = MINUTE_MS - (millis % MINUTE_MS) + 20;
+        handler.postAtTime(tick, SystemClock.uptimeMillis() + untilNextMinute);
+    }
+}
@@ -0,0 +1,27 @@
+package com.afonso.fiveminutediary.utils;
+
+/**
+ * Counts words without regex or intermediate arrays.
+ * A word is any run of non-whitespace characters, matching {@code trim().split("\\s+")}.
+ */
+public final class WordCounter {
+
+    private WordCounter() {
+    }
+
+    public static int count(CharSequence text) {
+        if (text == null) return 0;
+
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                inWord = false;
+            } else if (!inWord) {
+                inWord = true;
+                words++;
+            }
+        }
+        return words;
+    }
+}
@@ -3,7 +3,6 @@ package com.afonso.fiveminutediary.viewmodel;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
@@ -18,19 +17,26 @@ import androidx.annotation.Nullable;
 import com.afonso.fiveminutediary.R;
 import com.afonso.fiveminutediary.data.DataRepository;
 import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageLoader;
+import com.afonso.fiveminutediary.image.ImageStore;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
 public class DetailActivity extends BaseActivity {
 
+    /** Intent extra holding the id of the entry to show; resolved through DataRepository. */
+    public static final String EXTRA_ENTRY_ID = "entry_id";
+
     private static final int PICK_IMAGE_REQUEST = 1;
 
+    /** Height of the collapsing header in activity_detail.xml. */
+    private static final int HEADER_HEIGHT_DP = 280;
+
     private DataRepository repo;
+
+    /** Entry as last saved. Never edited in place: it may be the instance the repository shares. */
     private DiaryEntry entry;
     private ImageView headerImage;
     private TextView detailDate;
@@ -42,24 +48,53 @@ public class DetailActivity extends BaseActivity {
 
     private boolean hasCustomImage = false;
 
+    private ImageLoader imageLoader;
+    private ImageStore imageStore;
+    private ImageLoader.Request headerImageRequest;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_detail);
 
         repo = DataRepository.getInstance(this);
-        entry = (DiaryEntry) getIntent().getSerializableExtra("entry");
+        imageLoader = ImageLoader.getInstance(this);
+        imageStore = ImageStore.getInstance(this);
+        initViews();
 
-        if (entry == null) {
-            finish();
+        String entryId = getIntent().getStringExtra(EXTRA_ENTRY_ID);
+        DiaryEntry cached = repo.getCachedEntry(entryId);
+        if (cached != null) {
+            showEntry(cached);
             return;
         }
 
-        initViews();
+        // Not in memory in full (process was recreated, or an older entry kept as a summary);
+        // read it from Firestore, which serves it from its local cache when it can
+        repo.getEntryById(entryId, loaded -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (loaded == null) {
+                finish();
+                return;
+            }
+            showEntry(loaded);
+        });
+    }
+
+    private void showEntry(DiaryEntry entry) {
+        this.entry = entry;
         loadData();
         setupListeners();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (headerImageRequest != null) {
+            headerImageRequest.cancel();
+        }
+    }
+
     @Override
     protected int getNavigationMenuItemId() {
         return 0;
@@ -98,15 +133,42 @@ public class DetailActivity extends BaseActivity {
         }
 
         // Load image
-        if (entry.getImagePath() != null) {
-            Bitmap bmp = BitmapFactory.decodeFile(entry.getImagePath());
-            if (bmp != null) {
-                headerImage.setImageBitmap(bmp);
-                hasCustomImage = true;
-                return;
-            }
+        String imagePath = imageStore.resolveImagePath(entry);
+        if (imagePath != null) {
+            loadHeaderImage(imagePath);
+            return;
+        }
+        setDefaultHeaderImage();
+    }
+
+    /**
+     * Loads the header image at the size it is displayed. A memory hit is set before the
+     * first frame; otherwise the gradient shows until the background decode finishes.
+     */
+    private void loadHeaderImage(String path) {
+        int width = getResources().getDisplayMetrics().widthPixels;
+        int height = Math.round(HEADER_HEIGHT_DP * getResources().getDisplayMetrics().density);
+
+        Bitmap cached = imageLoader.getCached(path, width, height);
+        if (cached != null) {
+            headerImage.setImageBitmap(cached);
+            hasCustomImage = true;
+            return;
         }
+
         setDefaultHeaderImage();
+        hasCustomImage = true;
+        headerImageRequest = imageLoader.load(path, width, height, new ImageLoader.Callback() {
+            @Override
+            public void onLoaded(Bitmap bitmap) {
+                headerImage.setImageBitmap(bitmap);
+            }
+
+            @Override
+            public void onFailed() {
+                setDefaultHeaderImage();
+            }
+        });
     }
 
     private void setDefaultHeaderImage() {
@@ -135,13 +197,10 @@ public class DetailActivity extends BaseActivity {
                 .setTitle(getString(R.string.image_background_title))
                 .setItems(options, (dialog, which) -> {
                     if (hasCustomImage && which == 1) {
-                        // Delete custom image file
-                        if (entry.getImagePath() != null) {
-                            File f = new File(entry.getImagePath());
-                            if (f.exists()) f.delete();
-                        }
-                        entry.setImagePath(null);
-                        repo.updateEntry(entry, null);
+                        DiaryEntry edited = new DiaryEntry(entry);
+                        clearImage(edited);
+                        repo.updateEntryImage(edited, entry, null);
+                        entry = edited;
                         setDefaultHeaderImage();
                     } else {
                         openImagePicker();
@@ -164,31 +223,72 @@ public class DetailActivity extends BaseActivity {
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
             Uri imageUri = data.getData();
             if (imageUri != null) {
-                try {
-                    Bitmap selectedBitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), imageUri);
-
-                    // Save image to internal storage
-                    String filename = "entry_" + entry.getId() + ".png";
-                    File file = new File(getFilesDir(), filename);
-                    FileOutputStream out = new FileOutputStream(file);
-                    selectedBitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-                    out.close();
-
-                    // Update entry with image path
-                    entry.setImagePath(file.getAbsolutePath());
-                    repo.updateEntry(entry, task -> {
-                        runOnUiThread(() -> {
-                            headerImage.setImageBitmap(selectedBitmap);
+                importImage(imageUri);
+            }
+        }
+    }
+
+    /**
+     * Stores the picked image in the content-addressed store on a background thread,
+     * then points the entry at it by hash. The reference the import took becomes the entry's;
+     * the old image is released by the repository once the server accepts the change.
+     */
+    private void importImage(Uri imageUri) {
+        if (headerImageRequest != null) {
+            headerImageRequest.cancel();
+        }
+        changeImageButton.setEnabled(false);
+
+        imageStore.importImage(imageUri, new ImageStore.Callback() {
+            @Override
+            public void onStored(ImageStore.StoredImage image) {
+                DiaryEntry previous = entry;
+                DiaryEntry edited = new DiaryEntry(previous);
+                if (image.hash.equals(previous.getImageHash())) {
+                    // The entry already holds a reference to this image
+                    imageStore.release(image.hash);
+                } else {
+                    clearImage(edited);
+                    edited.setImageHash(image.hash);
+                    edited.setImageWidth(image.width);
+                    edited.setImageHeight(image.height);
+                }
+
+                entry = edited;
+                repo.updateEntryImage(edited, previous, task -> {
+                    runOnUiThread(() -> {
+                        if (isFinishing() || isDestroyed()) return;
+                        changeImageButton.setEnabled(true);
+                        if (image.bitmap != null) {
+                            headerImage.setImageBitmap(image.bitmap);
                             hasCustomImage = true;
-                            Toast.makeText(this, getString(R.string.image_updated), Toast.LENGTH_SHORT).show();
-                        });
+                        } else {
+                            // Same photo was already stored; load it through the cache
+                            loadHeaderImage(imageStore.resolveImagePath(edited));
+                        }
+                        Toast.makeText(DetailActivity.this, getString(R.string.image_updated), Toast.LENGTH_SHORT).show();
                     });
+                });
+            }
 
-                } catch (IOException e) {
-                    Toast.makeText(this, getString(R.string.image_load_error), Toast.LENGTH_SHORT).show();
-                }
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
+                changeImageButton.setEnabled(true);
+                Toast.makeText(DetailActivity.this, getString(R.string.image_load_error), Toast.LENGTH_SHORT).show();
             }
-        }
+        });
+    }
+
+    /**
+     * Removes the image from the edited entry. Its files stay until the repository has the
+     * change confirmed; see {@link DataRepository#updateEntryImage}.
+     */
+    private void clearImage(DiaryEntry edited) {
+        edited.setImageHash(null);
+        edited.setImageWidth(0);
+        edited.setImageHeight(0);
+        edited.setImagePath(null);
     }
 
     private void showDeleteConfirmation() {
@@ -31,11 +31,10 @@ import androidx.cardview.widget.CardView;
 
 import com.afonso.fiveminutediary.R;
 import com.afonso.fiveminutediary.data.DataRepository;
+import com.afonso.fiveminutediary.data.EditingSession;
 import com.afonso.fiveminutediary.data.TextFormattingSerializer;
+import com.afonso.fiveminutediary.utils.DateUtils;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.Stack;
 
 public class ExpandedEditActivity extends BaseActivity {
@@ -65,8 +64,12 @@ public class ExpandedEditActivity extends BaseActivity {
     private ImageButton colorGreenButton;
 
     private DataRepository repo;
-    private String originalText;
-    private String currentFormatting;
+
+    /** Draft shared with MainActivity; read on open and written on every save. */
+    private EditingSession session;
+
+    /** True when the editor has edits that haven't been handed to the repository. */
+    private boolean hasUnsavedChanges = false;
 
     private Stack<EditorState> undoStack = new Stack<>();
     private Stack<EditorState> redoStack = new Stack<>();
@@ -106,8 +109,7 @@ public class ExpandedEditActivity extends BaseActivity {
         setContentView(R.layout.activity_expanded_edit);
 
         repo = DataRepository.getInstance(this);
-        originalText = getIntent().getStringExtra("text");
-        currentFormatting = getIntent().getStringExtra("formatting");
+        session = repo.getEditingSession(DateUtils.today());
 
         autoSaveHandler = new Handler(Looper.getMainLooper());
 
@@ -171,22 +173,9 @@ public class ExpandedEditActivity extends BaseActivity {
     private void loadInitialText() {
         isRestoringState = true;
 
-        if (originalText != null && !originalText.isEmpty()) {
-            if (currentFormatting != null && !currentFormatting.isEmpty()) {
-                try {
-                    SpannableString formatted = TextFormattingSerializer.deserializeFormatting(
-                            originalText, currentFormatting);
-                    expandedInput.setText(formatted);
-                    Log.d(TAG, "Loaded with formatting: " + originalText.length() + " chars");
-                } catch (Exception e) {
-                    Log.e(TAG, "Error loading formatting", e);
-                    expandedInput.setText(originalText);
-                }
-            } else {
-                expandedInput.setText(originalText);
-                Log.d(TAG, "Loaded plain text: " + originalText.length() + " chars");
-            }
-        }
+        // setText copies the draft into the editor's own Editable
+        expandedInput.setText(session.getContent());
+        Log.d(TAG, "Loaded session: " + session.getContent().length() + " chars");
 
         isRestoringState = false;
     }
@@ -196,6 +185,7 @@ public class ExpandedEditActivity extends BaseActivity {
     }
 
     private void scheduleAutoSave() {
+        hasUnsavedChanges = true;
         if (autoSaveHandler != null && autoSaveRunnable != null) {
             autoSaveHandler.removeCallbacks(autoSaveRunnable);
             autoSaveHandler.postDelayed(autoSaveRunnable, AUTO_SAVE_DELAY);
@@ -203,9 +193,14 @@ public class ExpandedEditActivity extends BaseActivity {
     }
 
     private void saveToFirebase() {
+        if (!hasUnsavedChanges) return;
+
         CharSequence formattedText = expandedInput.getText();
         if (formattedText == null) return;
 
+        autoSaveHandler.removeCallbacks(autoSaveRunnable);
+        session.setContent(formattedText);
+
         String plainText = formattedText.toString().trim();
         if (plainText.isEmpty()) {
             Log.d(TAG, "Empty text, not saving");
@@ -220,35 +215,9 @@ public class ExpandedEditActivity extends BaseActivity {
             Log.e(TAG, "Error serializing formatting", e);
         }
 
-        final String finalFormatting = formatting;
-
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-
-        repo.getEntryForDay(today, entry -> {
-            runOnUiThread(() -> {
-                if (entry != null) {
-                    entry.setText(plainText);
-                    entry.setFormatting(finalFormatting);
-                    entry.setTimestamp(System.currentTimeMillis());
-
-                    repo.updateEntry(entry, task -> {
-                        Log.d(TAG, "Entry updated in Firebase");
-                        storeInIntent(plainText, finalFormatting);
-                    });
-                } else {
-                    repo.saveOrUpdateTodayEntry(plainText, finalFormatting, task -> {
-                        Log.d(TAG, "New entry saved to Firebase");
-                        storeInIntent(plainText, finalFormatting);
-                    });
-                }
-            });
-        });
-    }
-
-    private void storeInIntent(String text, String formatting) {
-        getIntent().putExtra("edited_text", text);
-        getIntent().putExtra("formatting", formatting);
-        Log.d(TAG, "Stored in intent: " + text.length() + " chars");
+        hasUnsavedChanges = false;
+        repo.saveOrUpdateTodayEntry(plainText, formatting, task ->
+                Log.d(TAG, "Entry saved to Firebase"));
     }
 
     private void setupListeners() {
@@ -728,7 +697,6 @@ public class ExpandedEditActivity extends BaseActivity {
                 .setDuration(250)
                 .setInterpolator(new AccelerateDecelerateInterpolator())
                 .withEndAction(() -> {
-                    setResult(RESULT_OK, getIntent());
                     finish();
                     overridePendingTransition(0, 0);
                 })
@@ -2,25 +2,46 @@ package com.afonso.fiveminutediary.viewmodel;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.afonso.fiveminutediary.R;
 import com.afonso.fiveminutediary.adapter.DiaryAdapter;
+import com.afonso.fiveminutediary.adapter.MonthHeaderDecoration;
+import com.afonso.fiveminutediary.adapter.SearchResultAdapter;
 import com.afonso.fiveminutediary.data.DataRepository;
 import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.search.SearchIndex;
+import com.afonso.fiveminutediary.search.SearchResult;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
-public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryClickListener {
+public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryClickListener,
+        SearchResultAdapter.OnResultClickListener {
 
     private RecyclerView recyclerView;
     private DiaryAdapter adapter;
     private DataRepository repo;
     private LinearLayout emptyView;
 
+    private EditText searchInput;
+    private RecyclerView searchResults;
+    private SearchResultAdapter searchAdapter;
+    private TextView searchEmptyView;
+    private SearchIndex searchIndex;
+
+    /** Trimmed text of the search box; empty when the normal list is shown. */
+    private String currentQuery = "";
+
+    /** Whether the last entry list was empty, to restore the right view when a search is cleared. */
+    private boolean hasNoEntries = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -31,19 +52,18 @@ public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryCl
         setContentView(R.layout.activity_list);
 
         repo = DataRepository.getInstance(this);
+        searchIndex = SearchIndex.getInstance(this);
 
         initViews();
-        loadEntries();
         setupBottomNavigation();
+
+        // Rendered from the repository's state; kept in sync while this screen is started
+        repo.observeEntries().observe(this, this::updateUI);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-
-        // Start realtime listener
-        startRealtimeUpdates();
-
         updateBottomNavSelection();
     }
 
@@ -52,14 +72,6 @@ public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryCl
         return R.id.nav_history;
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-
-        // Stop listener to save resources
-        repo.stopEntriesListener();
-    }
-
     /**
      * Check if user is authenticated
      */
@@ -80,34 +92,76 @@ public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryCl
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         adapter = new DiaryAdapter(this, this);
         recyclerView.setAdapter(adapter);
+        recyclerView.addItemDecoration(new MonthHeaderDecoration(recyclerView, adapter));
+
+        searchInput = findViewById(R.id.searchInput);
+        searchResults = findViewById(R.id.searchResults);
+        searchEmptyView = findViewById(R.id.searchEmptyView);
+
+        searchResults.setLayoutManager(new LinearLayoutManager(this));
+        searchAdapter = new SearchResultAdapter(this, this);
+        searchResults.setAdapter(searchAdapter);
+
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                String query = s.toString().trim();
+                if (query.equals(currentQuery)) return;
+                currentQuery = query;
+                runSearch();
+            }
+        });
     }
 
     /**
-     * Start realtime updates
+     * Searches for the current query, or shows the normal list again when it is empty.
+     * Results for a query the user has already typed past are dropped.
      */
-    private void startRealtimeUpdates() {
-        repo.startEntriesListener(entries -> {
-            runOnUiThread(() -> {
-                updateUI(entries);
-            });
+    private void runSearch() {
+        if (currentQuery.isEmpty()) {
+            searchAdapter.setResults(java.util.Collections.emptyList());
+            searchResults.setVisibility(View.GONE);
+            searchEmptyView.setVisibility(View.GONE);
+            recyclerView.setVisibility(hasNoEntries ? View.GONE : View.VISIBLE);
+            emptyView.setVisibility(hasNoEntries ? View.VISIBLE : View.GONE);
+            return;
+        }
+
+        searchIndex.search(currentQuery, (query, results) -> {
+            if (!query.equals(currentQuery) || isFinishing()) return;
+            searchAdapter.setResults(results);
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.GONE);
+            searchResults.setVisibility(results.isEmpty() ? View.GONE : View.VISIBLE);
+            searchEmptyView.setVisibility(results.isEmpty() ? View.VISIBLE : View.GONE);
         });
     }
 
-    /**
-     * Load entries (initial)
-     */
-    private void loadEntries() {
-        repo.getEntries(entries -> {
-            runOnUiThread(() -> {
-                updateUI(entries);
-            });
-        });
+    @Override
+    public void onResultClick(SearchResult result) {
+        Intent intent = new Intent(this, DetailActivity.class);
+        intent.putExtra(DetailActivity.EXTRA_ENTRY_ID, result.entryId);
+        startActivity(intent);
     }
 
     /**
      * Update UI with entries
      */
     private void updateUI(java.util.List<DiaryEntry> entries) {
+        hasNoEntries = entries.isEmpty();
+        if (!currentQuery.isEmpty()) {
+            // Keep the results on screen, refreshed against the updated index
+            adapter.setEntries(entries);
+            runSearch();
+            return;
+        }
+
         if (entries.isEmpty()) {
             recyclerView.setVisibility(View.GONE);
             emptyView.setVisibility(View.VISIBLE);
@@ -121,7 +175,7 @@ public class ListActivity extends BaseActivity implements DiaryAdapter.OnEntryCl
     @Override
     public void onEntryClick(DiaryEntry entry) {
         Intent intent = new Intent(this, DetailActivity.class);
-        intent.putExtra("entry", entry);
+        intent.putExtra(DetailActivity.EXTRA_ENTRY_ID, entry.getId());
         startActivity(intent);
     }
 
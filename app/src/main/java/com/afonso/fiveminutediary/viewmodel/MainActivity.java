@@ -23,20 +23,20 @@ import androidx.cardview.widget.CardView;
 import com.afonso.fiveminutediary.R;
 import com.afonso.fiveminutediary.data.DataRepository;
 import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.data.EditingSession;
 import com.afonso.fiveminutediary.data.TextFormattingSerializer;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.afonso.fiveminutediary.utils.MinuteClock;
 import com.afonso.fiveminutediary.utils.ZenToast;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Locale;
 import java.util.Random;
 
 public class MainActivity extends BaseActivity {
 
-    private static final int REQUEST_EXPANDED_EDIT = 100;
     private static final long AUTO_SAVE_DELAY = 2000; // 2 seconds
 
     private DataRepository repo;
@@ -55,8 +55,18 @@ public class MainActivity extends BaseActivity {
     private boolean hadEntryToday = false;
     private boolean isSaving = false;
 
-    private Handler timeHandler;
-    private Runnable timeRunnable;
+    /** Draft shared with ExpandedEditActivity. */
+    private EditingSession session;
+    /** Session version currently shown in entryInput. */
+    private long boundVersion = -1;
+    /** True while entryInput is filled programmatically, so it isn't treated as an edit. */
+    private boolean isBindingText = false;
+    /** True when entryInput has edits that haven't been handed to the repository. */
+    private boolean hasUnsavedChanges = false;
+
+    private boolean reportedFullyDrawn = false;
+
+    private MinuteClock clock;
     private Handler autoSaveHandler;
     private Runnable autoSaveRunnable;
 
@@ -85,7 +95,7 @@ public class MainActivity extends BaseActivity {
         setupListeners();
         setupBottomNavigation(); // Chama o método da superclasse!
         setRandomTexts();
-        startClock();
+        clock = new MinuteClock(this, currentTime::setText);
         animateEntrance();
         setupAutoSave();
     }
@@ -96,7 +106,7 @@ public class MainActivity extends BaseActivity {
         if (!checkAuthentication()) return;
 
         loadTodayEntry();
-        startClock();
+        clock.start();
         updateBottomNavSelection(); // Atualiza a seleção
     }
 
@@ -113,7 +123,9 @@ public class MainActivity extends BaseActivity {
             entryInput.clearFocus();
         }
 
-        stopClock();
+        if (clock != null) {
+            clock.stop();
+        }
         saveCurrentEntry();
     }
 
@@ -172,7 +184,9 @@ public class MainActivity extends BaseActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 updateWordCount(s.toString());
-                scheduleAutoSave();
+                if (!isBindingText) {
+                    scheduleAutoSave();
+                }
             }
 
             @Override
@@ -185,6 +199,7 @@ public class MainActivity extends BaseActivity {
     }
 
     private void scheduleAutoSave() {
+        hasUnsavedChanges = true;
         if (autoSaveHandler != null && autoSaveRunnable != null) {
             autoSaveHandler.removeCallbacks(autoSaveRunnable);
             autoSaveHandler.postDelayed(autoSaveRunnable, AUTO_SAVE_DELAY);
@@ -192,12 +207,18 @@ public class MainActivity extends BaseActivity {
     }
 
     private void saveCurrentEntry() {
+        if (!hasUnsavedChanges) {
+            return;
+        }
+        syncSession();
+
         String text = entryInput.getText().toString().trim();
         if (text.isEmpty() || isSaving) {
             return;
         }
 
         isSaving = true;
+        hasUnsavedChanges = false;
         boolean isFirstEntry = !hadEntryToday;
 
         // Extract formatting
@@ -215,30 +236,6 @@ public class MainActivity extends BaseActivity {
         });
     }
 
-    private void startClock() {
-        if (timeHandler == null) {
-            timeHandler = new Handler(Looper.getMainLooper());
-        }
-
-        timeRunnable = new Runnable() {
-            @Override
-            public void run() {
-                // Use 24-hour format (HH:mm) which is language-independent
-                SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-                currentTime.setText(timeFormat.format(new Date()));
-                timeHandler.postDelayed(this, 1000);
-            }
-        };
-
-        timeHandler.post(timeRunnable);
-    }
-
-    private void stopClock() {
-        if (timeHandler != null && timeRunnable != null) {
-            timeHandler.removeCallbacks(timeRunnable);
-        }
-    }
-
     private void updateWordCount(String text) {
         if (text.trim().isEmpty()) {
             wordCounter.setText(R.string.word_counter_zero);
@@ -252,36 +249,54 @@ public class MainActivity extends BaseActivity {
     }
 
     private void loadTodayEntry() {
-        // Use Locale.getDefault() for date format (language-independent format)
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-                .format(new Date());
+        int today = DateUtils.today();
+        session = repo.getEditingSession(today);
 
         repo.getEntryForDay(today, entry -> {
             runOnUiThread(() -> {
                 todaysEntry = entry;
+                if (session.getVersion() == 0 && todaysEntry != null) {
+                    // First time this process sees today's entry; seed the draft from it
+                    session.setContent(TextFormattingSerializer.deserializeFormatting(
+                            todaysEntry.getText(), todaysEntry.getFormatting()));
+                }
+                bindSession();
+
                 if (todaysEntry != null) {
-                    // Load text with formatting
-                    String formatting = todaysEntry.getFormatting();
-                    if (formatting != null && !formatting.isEmpty()) {
-                        android.text.SpannableString formatted =
-                                TextFormattingSerializer.deserializeFormatting(
-                                        todaysEntry.getText(), formatting
-                                );
-                        entryInput.setText(formatted);
-                    } else {
-                        entryInput.setText(todaysEntry.getText());
-                    }
                     expandButton.setVisibility(android.view.View.VISIBLE);
                     hadEntryToday = true;
                 } else {
-                    entryInput.setText("");
                     expandButton.setVisibility(android.view.View.GONE);
                     hadEntryToday = false;
                 }
+
+                if (!reportedFullyDrawn) {
+                    // Today's entry is the screen's meaningful content; marks time-to-full-display
+                    reportedFullyDrawn = true;
+                    reportFullyDrawn();
+                }
             });
         });
     }
 
+    /** Shows the session's draft, unless entryInput already shows that version. */
+    private void bindSession() {
+        if (session.getVersion() == boundVersion) {
+            return;
+        }
+        isBindingText = true;
+        entryInput.setText(session.getContent());
+        isBindingText = false;
+        boundVersion = session.getVersion();
+    }
+
+    /** Hands entryInput's current text to the shared session. */
+    private void syncSession() {
+        if (session == null) return;
+        session.setContent(entryInput.getText());
+        boundVersion = session.getVersion();
+    }
+
     private void setRandomTexts() {
         Random random = new Random();
         motivationalText.setText(motivationalTexts[random.nextInt(motivationalTexts.length)]);
@@ -323,6 +338,8 @@ public class MainActivity extends BaseActivity {
         }
 
         boolean isFirstEntry = !hadEntryToday;
+        syncSession();
+        hasUnsavedChanges = false;
 
         CharSequence formattedText = entryInput.getText();
         String formatting = TextFormattingSerializer.serializeFormatting(formattedText);
@@ -343,45 +360,18 @@ public class MainActivity extends BaseActivity {
         });
     }
 
+    /**
+     * Opens the full-screen editor on the shared session. Pending edits are saved by
+     * onPause; the editor's changes come back through the session in onResume.
+     */
     private void openExpandedEdit() {
-        // Save current state first
-        saveCurrentEntry();
+        syncSession();
 
         Intent intent = new Intent(this, ExpandedEditActivity.class);
-        intent.putExtra("text", entryInput.getText().toString());
-
-        CharSequence formattedText = entryInput.getText();
-        String formatting = TextFormattingSerializer.serializeFormatting(formattedText);
-        intent.putExtra("formatting", formatting);
-
-        startActivityForResult(intent, REQUEST_EXPANDED_EDIT);
+        startActivity(intent);
         overridePendingTransition(0, 0);
     }
 
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-
-        if (requestCode == REQUEST_EXPANDED_EDIT && resultCode == RESULT_OK && data != null) {
-            String editedText = data.getStringExtra("edited_text");
-            String formatting = data.getStringExtra("formatting");
-
-            if (editedText != null) {
-                // Apply text with formatting
-                if (formatting != null && !formatting.isEmpty()) {
-                    android.text.SpannableString formatted =
-                            TextFormattingSerializer.deserializeFormatting(editedText, formatting);
-                    entryInput.setText(formatted);
-                } else {
-                    entryInput.setText(editedText);
-                }
-
-                // Save immediately
-                saveCurrentEntry();
-            }
-        }
-    }
-
     private String capitalize(String text) {
         if (text == null || text.isEmpty()) {
             return text;
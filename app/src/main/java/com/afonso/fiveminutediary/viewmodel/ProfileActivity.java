@@ -4,6 +4,7 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Rect;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -12,19 +13,29 @@ import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ImageButton;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
 import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.backup.BackupJob;
+import com.afonso.fiveminutediary.backup.DiaryExporter;
+import com.afonso.fiveminutediary.backup.DiaryImporter;
 import com.afonso.fiveminutediary.data.DataRepository;
 import com.afonso.fiveminutediary.data.UserProfile;
+import com.afonso.fiveminutediary.stats.WritingCalendar;
+import com.afonso.fiveminutediary.stats.WritingPatterns;
 import com.afonso.fiveminutediary.util.LocaleManager;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.afonso.fiveminutediary.widget.HourHistogramView;
+import com.afonso.fiveminutediary.widget.YearHeatmapView;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
@@ -36,10 +47,17 @@ import com.google.firebase.auth.EmailAuthProvider;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 
 public class ProfileActivity extends BaseActivity {
 
+    // The export format travels in the request code so it survives the activity being recreated
+    private static final int EXPORT_JSON_LINES_REQUEST = 1;
+    private static final int EXPORT_MARKDOWN_REQUEST = 2;
+    private static final int IMPORT_REQUEST = 3;
+
     private DataRepository repo;
     private UserProfile userProfile;
     private FirebaseAuth auth;
@@ -54,6 +72,25 @@ public class ProfileActivity extends BaseActivity {
     private CardView languageCard;
     private Button logoutButton;
     private Button deleteAccountButton;
+    private Button exportButton;
+    private Button importButton;
+    private YearHeatmapView yearHeatmap;
+    private TextView heatmapYearText;
+    private TextView heatmapSummaryText;
+    private ImageButton heatmapPreviousYear;
+    private ImageButton heatmapNextYear;
+    private TextView favoriteTimeText;
+    private TextView busiestDayText;
+    private TextView peakHourText;
+    private HourHistogramView hourHistogram;
+
+    private WritingCalendar writingCalendar;
+    private int heatmapYear;
+    /** Reused for every year shown. */
+    private final int[] heatmapWords = new int[WritingCalendar.DAYS_PER_YEAR];
+
+    private BackupJob backupJob;
+    private AlertDialog backupDialog;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -79,17 +116,17 @@ public class ProfileActivity extends BaseActivity {
         setupBottomNavigation();
         setupPremiumCard();
         setupLanguageSelector();
+        setupBackup();
+        setupHeatmap();
+        observeRepository();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
 
-        // Start realtime listener for profile
-        startRealtimeProfileUpdates();
-
-        // Reload stats
-        loadProfileData();
+        // Journey days move on with the date; everything else is pushed by the repository
+        showProfileData();
 
         // Update language display
         updateLanguageDisplay();
@@ -111,9 +148,6 @@ public class ProfileActivity extends BaseActivity {
     protected void onPause() {
         super.onPause();
 
-        // Stop listener
-        repo.stopProfileListener();
-
         // Auto-save name
         saveName();
 
@@ -143,6 +177,17 @@ public class ProfileActivity extends BaseActivity {
         languageCard = findViewById(R.id.languageCard);
         logoutButton = findViewById(R.id.logoutButton);
         deleteAccountButton = findViewById(R.id.deleteAccountButton);
+        exportButton = findViewById(R.id.exportButton);
+        importButton = findViewById(R.id.importButton);
+        yearHeatmap = findViewById(R.id.yearHeatmap);
+        heatmapYearText = findViewById(R.id.heatmapYearText);
+        heatmapSummaryText = findViewById(R.id.heatmapSummaryText);
+        heatmapPreviousYear = findViewById(R.id.heatmapPreviousYear);
+        heatmapNextYear = findViewById(R.id.heatmapNextYear);
+        favoriteTimeText = findViewById(R.id.favoriteTimeText);
+        busiestDayText = findViewById(R.id.busiestDayText);
+        peakHourText = findViewById(R.id.peakHourText);
+        hourHistogram = findViewById(R.id.hourHistogram);
 
         nameInput.setOnFocusChangeListener((v, hasFocus) -> {
             if (!hasFocus) {
@@ -154,15 +199,28 @@ public class ProfileActivity extends BaseActivity {
         deleteAccountButton.setOnClickListener(v -> showDeleteAccountDialog());
     }
 
-    private void startRealtimeProfileUpdates() {
-        repo.startProfileListener(profile -> {
-            runOnUiThread(() -> {
-                userProfile = profile;
-                if (userProfile != null && userProfile.getUserName() != null) {
-                    if (!nameInput.hasFocus()) {
-                        nameInput.setText(userProfile.getUserName());
-                    }
-                }
+    /**
+     * Renders the profile and stats from the repository's observable state. Both stay in sync
+     * with Firestore while this screen is started, and are served from memory when it returns.
+     */
+    private void observeRepository() {
+        repo.observeProfile().observe(this, profile -> {
+            if (profile == null) return;
+            userProfile = profile;
+            if (userProfile.getUserName() != null && !nameInput.hasFocus()) {
+                nameInput.setText(userProfile.getUserName());
+            }
+            showProfileData();
+        });
+
+        repo.observeStats().observe(this, stats -> {
+            totalEntriesText.setText(String.valueOf(stats.entryCount));
+            streakText.setText(String.valueOf(stats.streak));
+
+            // The calendar changes together with the entries behind these stats
+            repo.getWritingCalendar(calendar -> {
+                writingCalendar = calendar;
+                showHeatmapYear(heatmapYear);
             });
         });
     }
@@ -174,12 +232,13 @@ public class ProfileActivity extends BaseActivity {
                 if (userProfile.getUserName() != null && !userProfile.getUserName().isEmpty()) {
                     nameInput.setText(userProfile.getUserName());
                 }
-                loadProfileData();
+                showProfileData();
             });
         });
     }
 
-    private void loadProfileData() {
+    /** Shows what is derived from the profile alone; no queries. */
+    private void showProfileData() {
         if (userProfile == null) return;
 
         long daysSinceFirstUse = TimeUnit.MILLISECONDS.toDays(
@@ -192,17 +251,14 @@ public class ProfileActivity extends BaseActivity {
                 (int) daysSinceFirstUse
         ));
 
-        repo.getEntryCount(count -> {
-            runOnUiThread(() -> {
-                totalEntriesText.setText(String.valueOf(count));
-            });
-        });
-
-        repo.calculateStreak(streak -> {
-            runOnUiThread(() -> {
-                streakText.setText(String.valueOf(streak));
+        if (userProfile.getHourHistogram() != null) {
+            showWritingPatterns(WritingPatterns.fromProfile(userProfile));
+        } else {
+            // Not counted yet for this profile; derived once from the entries
+            repo.getWritingPatterns(patterns -> {
+                runOnUiThread(() -> showWritingPatterns(patterns));
             });
-        });
+        }
     }
 
     private void saveName() {
@@ -219,6 +275,70 @@ public class ProfileActivity extends BaseActivity {
         });
     }
 
+    // ==================== HEATMAP ====================
+
+    private void setupHeatmap() {
+        heatmapYear = LocalDate.ofEpochDay(DateUtils.today()).getYear();
+        heatmapPreviousYear.setOnClickListener(v -> showHeatmapYear(heatmapYear - 1));
+        heatmapNextYear.setOnClickListener(v -> showHeatmapYear(heatmapYear + 1));
+        showHeatmapYear(heatmapYear);
+    }
+
+    /** Shows a year from the calendar held in memory; switching years never queries entries. */
+    private void showHeatmapYear(int year) {
+        int firstYear = writingCalendar != null ? writingCalendar.getFirstYear() : year;
+        int lastYear = writingCalendar != null ? writingCalendar.getLastYear() : year;
+        heatmapYear = Math.max(firstYear, Math.min(lastYear, year));
+
+        int totalWords = writingCalendar != null ? writingCalendar.copyYear(heatmapYear, heatmapWords) : 0;
+        int daysWritten = 0;
+        for (int words : heatmapWords) {
+            if (words > 0) daysWritten++;
+        }
+
+        yearHeatmap.setYear(heatmapYear, heatmapWords);
+        heatmapYearText.setText(String.valueOf(heatmapYear));
+        heatmapSummaryText.setText(getResources().getQuantityString(
+                R.plurals.heatmap_summary, daysWritten, totalWords, daysWritten));
+
+        heatmapPreviousYear.setEnabled(heatmapYear > firstYear);
+        heatmapPreviousYear.setAlpha(heatmapYear > firstYear ? 1f : 0.3f);
+        heatmapNextYear.setEnabled(heatmapYear < lastYear);
+        heatmapNextYear.setAlpha(heatmapYear < lastYear ? 1f : 0.3f);
+    }
+
+    // ==================== WRITING PATTERNS ====================
+
+    private void showWritingPatterns(WritingPatterns patterns) {
+        int peakHour = patterns.peakHour();
+        hourHistogram.setCounts(patterns.getHours(), peakHour);
+
+        if (patterns.isEmpty()) {
+            favoriteTimeText.setText(R.string.patterns_none);
+            busiestDayText.setText(R.string.patterns_none);
+            peakHourText.setText(R.string.patterns_empty);
+            return;
+        }
+
+        favoriteTimeText.setText(writingTimeLabel(patterns.favoriteWritingTime()));
+        String[] dayNames = getResources().getStringArray(R.array.day_names);
+        busiestDayText.setText(dayNames[patterns.peakWeekday()]);
+        peakHourText.setText(getString(R.string.patterns_peak_hour, peakHour));
+    }
+
+    private int writingTimeLabel(String writingTime) {
+        switch (writingTime) {
+            case WritingPatterns.MORNING:
+                return R.string.time_morning;
+            case WritingPatterns.AFTERNOON:
+                return R.string.time_afternoon;
+            case WritingPatterns.NIGHT:
+                return R.string.time_night;
+            default:
+                return R.string.time_evening;
+        }
+    }
+
     // ==================== LANGUAGE SELECTOR ====================
 
     private void setupLanguageSelector() {
@@ -291,6 +411,160 @@ public class ProfileActivity extends BaseActivity {
         finish();
     }
 
+    // ==================== BACKUP ====================
+
+    private void setupBackup() {
+        exportButton.setOnClickListener(v -> showExportFormatDialog());
+        importButton.setOnClickListener(v -> openImportPicker());
+    }
+
+    private void showExportFormatDialog() {
+        String[] options = {
+                getString(R.string.export_format_jsonl),
+                getString(R.string.export_format_markdown)
+        };
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.export_format_title)
+                .setItems(options, (dialog, which) -> {
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType("application/zip");
+                    intent.putExtra(Intent.EXTRA_TITLE, "5minutediary-" + LocalDate.now() + ".zip");
+                    startActivityForResult(intent,
+                            which == 0 ? EXPORT_JSON_LINES_REQUEST : EXPORT_MARKDOWN_REQUEST);
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void openImportPicker() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{
+                "application/zip", "application/json", "text/*", "application/octet-stream"
+        });
+        startActivityForResult(intent, IMPORT_REQUEST);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        if (resultCode != RESULT_OK || data == null || data.getData() == null) return;
+
+        if (requestCode == EXPORT_JSON_LINES_REQUEST) {
+            startExport(data.getData(), DiaryExporter.Format.JSON_LINES);
+        } else if (requestCode == EXPORT_MARKDOWN_REQUEST) {
+            startExport(data.getData(), DiaryExporter.Format.MARKDOWN);
+        } else if (requestCode == IMPORT_REQUEST) {
+            startImport(data.getData());
+        }
+    }
+
+    private void showBackupProgress(int titleRes) {
+        backupDialog = new AlertDialog.Builder(this)
+                .setTitle(titleRes)
+                .setMessage(R.string.backup_progress_starting)
+                .setCancelable(false)
+                .setNegativeButton(R.string.cancel, (dialog, which) -> backupJob.cancel())
+                .create();
+        backupDialog.show();
+    }
+
+    private void startExport(Uri destination, DiaryExporter.Format format) {
+        showBackupProgress(R.string.export_progress_title);
+
+        backupJob = new DiaryExporter(this).export(destination, format, new DiaryExporter.Listener() {
+            @Override
+            public void onProgress(DiaryExporter.Stage stage, int done, int total) {
+                if (backupDialog == null) return;
+
+                if (stage == DiaryExporter.Stage.IMAGES) {
+                    backupDialog.setMessage(getString(R.string.export_progress_images, done, total));
+                } else if (total >= 0) {
+                    backupDialog.setMessage(getString(R.string.export_progress_entries, done, total));
+                } else {
+                    backupDialog.setMessage(getString(R.string.export_progress_entries_unknown, done));
+                }
+            }
+
+            @Override
+            public void onComplete(int entries, int images) {
+                if (isDestroyed()) return;
+                dismissBackupDialog();
+                Toast.makeText(ProfileActivity.this,
+                        getString(R.string.export_success, entries, images),
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isDestroyed()) return;
+                dismissBackupDialog();
+                Toast.makeText(ProfileActivity.this,
+                        e instanceof CancellationException ? R.string.export_cancelled : R.string.export_failed,
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void startImport(Uri source) {
+        showBackupProgress(R.string.import_progress_title);
+
+        backupJob = new DiaryImporter(this).importFrom(source, new DiaryImporter.Listener() {
+            @Override
+            public void onProgress(DiaryImporter.Stage stage, int done, int total) {
+                if (backupDialog == null) return;
+
+                if (stage == DiaryImporter.Stage.IMAGES) {
+                    backupDialog.setMessage(getString(R.string.import_progress_images, done));
+                } else if (total >= 0) {
+                    backupDialog.setMessage(getString(R.string.import_progress_entries, done, total));
+                } else {
+                    backupDialog.setMessage(getString(R.string.import_progress_entries_unknown, done));
+                }
+            }
+
+            @Override
+            public void onComplete(int imported, int skipped) {
+                if (isDestroyed()) return;
+                dismissBackupDialog();
+                Toast.makeText(ProfileActivity.this,
+                        getString(R.string.import_success, imported, skipped),
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isDestroyed()) return;
+                dismissBackupDialog();
+                Toast.makeText(ProfileActivity.this,
+                        e instanceof CancellationException ? R.string.import_cancelled : R.string.import_failed,
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void dismissBackupDialog() {
+        if (backupDialog != null) {
+            backupDialog.dismiss();
+            backupDialog = null;
+        }
+        backupJob = null;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The job keeps going; only its progress UI goes away with the activity
+        if (backupDialog != null) {
+            backupDialog.dismiss();
+            backupDialog = null;
+        }
+    }
+
     // ==================== LOGOUT & DELETE ====================
 
     private void showLogoutDialog() {
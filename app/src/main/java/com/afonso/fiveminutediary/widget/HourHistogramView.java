@@ -0,0 +1,96 @@
+package com.afonso.fiveminutediary.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.afonso.fiveminutediary.R;
+
+/**
+ * Bar chart of writes per hour of the day, midnight on the left. The peak hour is drawn in
+ * the accent colour. Like {@link YearHeatmapView}, drawing reuses one rect and fixed paints.
+ */
+public class HourHistogramView extends View {
+
+    private static final int HOURS = 24;
+
+    private static final float HEIGHT_DP = 64f;
+    private static final float GAP_DP = 3f;
+    private static final float CORNER_DP = 2f;
+    private static final float MIN_BAR_DP = 2f;
+
+    private final Paint barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint peakPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint emptyPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF bar = new RectF();
+    private final int defaultHeight;
+    private final float gap;
+    private final float corner;
+    private final float minBar;
+
+    private final int[] counts = new int[HOURS];
+    private int max;
+    private int peakHour = -1;
+
+    public HourHistogramView(Context context) {
+        this(context, null);
+    }
+
+    public HourHistogramView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        defaultHeight = Math.round(HEIGHT_DP * density);
+        gap = GAP_DP * density;
+        corner = CORNER_DP * density;
+        minBar = MIN_BAR_DP * density;
+
+        barPaint.setColor(ContextCompat.getColor(context, R.color.primary));
+        peakPaint.setColor(ContextCompat.getColor(context, R.color.accent));
+        emptyPaint.setColor(ContextCompat.getColor(context, R.color.chip_background_default));
+    }
+
+    /**
+     * @param hours    writes per hour of day, 24 values
+     * @param peakHour hour to highlight, or -1
+     */
+    public void setCounts(int[] hours, int peakHour) {
+        max = 0;
+        for (int hour = 0; hour < HOURS; hour++) {
+            counts[hour] = hours[hour];
+            max = Math.max(max, hours[hour]);
+        }
+        this.peakHour = peakHour;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = defaultHeight + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float bottom = getHeight() - getPaddingBottom();
+        float height = bottom - getPaddingTop();
+        float pitch = width / HOURS;
+        float barWidth = pitch - gap;
+        if (barWidth <= 0 || height <= 0) return;
+
+        for (int hour = 0; hour < HOURS; hour++) {
+            float left = getPaddingLeft() + hour * pitch + gap / 2f;
+            float barHeight = max > 0 ? Math.max(minBar, height * counts[hour] / max) : minBar;
+            bar.set(left, bottom - barHeight, left + barWidth, bottom);
+            Paint paint = counts[hour] == 0 ? emptyPaint : hour == peakHour ? peakPaint : barPaint;
+            canvas.drawRoundRect(bar, corner, corner, paint);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.afonso.fiveminutediary.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.stats.WritingCalendar;
+import com.afonso.fiveminutediary.utils.DateUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+import java.util.Locale;
+
+/**
+ * Contribution-style grid of one year: a column per week, a row per weekday, each day shaded
+ * by the words written on it.
+ *
+ * <p>Renders straight from a {@link WritingCalendar} year array. Everything that depends on
+ * the year (the weekday of 1 January, its length, the shade of each day) is worked out in
+ * {@link #setYear}, so drawing is a loop of {@code drawRoundRect} calls over one reused rect
+ * and the five pre-built paints.</p>
+ */
+public class YearHeatmapView extends View {
+
+    private static final int ROWS = 7;
+
+    /** Enough columns for any year: 366 days starting on the last day of a week. */
+    private static final int MAX_COLUMNS = 54;
+
+    /** Shades above the empty one; a day's shade is its share of the year's busiest day. */
+    private static final int LEVELS = 4;
+
+    private static final float GAP_DP = 2f;
+    private static final float CORNER_DP = 2f;
+    private static final float MAX_CELL_DP = 16f;
+
+    private final Paint[] levelPaints = new Paint[LEVELS + 1];
+    private final Paint todayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cell = new RectF();
+    private final float gap;
+    private final float corner;
+    private final float maxCell;
+
+    /** Shade of each day of the year, 0 for no writing. */
+    private final byte[] levels = new byte[WritingCalendar.DAYS_PER_YEAR];
+    private int daysInYear = 365;
+
+    /** Row of 1 January, counted from the locale's first day of the week. */
+    private int firstRow;
+
+    /** Index of today within the year, or -1 when showing another year. */
+    private int todayIndex = -1;
+
+    public YearHeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public YearHeatmapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        gap = GAP_DP * density;
+        corner = CORNER_DP * density;
+        maxCell = MAX_CELL_DP * density;
+
+        int empty = ContextCompat.getColor(context, R.color.chip_background_default);
+        int full = ContextCompat.getColor(context, R.color.primary);
+        levelPaints[0] = fillPaint(empty);
+        for (int level = 1; level <= LEVELS; level++) {
+            // Evenly spaced alphas of the primary colour, from faint to solid
+            int alpha = 255 * level / LEVELS;
+            levelPaints[level] = fillPaint(Color.argb(alpha, Color.red(full), Color.green(full), Color.blue(full)));
+        }
+
+        todayPaint.setStyle(Paint.Style.STROKE);
+        todayPaint.setStrokeWidth(density);
+        todayPaint.setColor(ContextCompat.getColor(context, R.color.accent));
+
+        setYear(LocalDate.ofEpochDay(DateUtils.today()).getYear(), new int[WritingCalendar.DAYS_PER_YEAR]);
+    }
+
+    private static Paint fillPaint(int color) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(color);
+        return paint;
+    }
+
+    /**
+     * Shows a year.
+     *
+     * @param year  calendar year
+     * @param words words per day of that year, as filled by {@link WritingCalendar#copyYear}
+     */
+    public void setYear(int year, int[] words) {
+        LocalDate firstDay = LocalDate.of(year, 1, 1);
+        daysInYear = firstDay.lengthOfYear();
+
+        DayOfWeek weekStart = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek();
+        firstRow = Math.floorMod(firstDay.getDayOfWeek().getValue() - weekStart.getValue(), ROWS);
+
+        LocalDate today = LocalDate.ofEpochDay(DateUtils.today());
+        todayIndex = today.getYear() == year ? today.getDayOfYear() - 1 : -1;
+
+        int max = 0;
+        for (int i = 0; i < daysInYear; i++) {
+            max = Math.max(max, words[i]);
+        }
+        for (int i = 0; i < daysInYear; i++) {
+            // Any writing at all gets at least the faintest shade
+            levels[i] = words[i] <= 0 ? 0 : (byte) Math.max(1, (int) Math.ceil((double) LEVELS * words[i] / max));
+        }
+
+        setContentDescription(String.valueOf(year));
+        invalidate();
+    }
+
+    /** Width of a cell plus its gap, so the widest year fits. */
+    private float pitch(int width) {
+        float available = width - getPaddingLeft() - getPaddingRight();
+        return Math.min(available / MAX_COLUMNS, maxCell + gap);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        float pitch = pitch(width);
+        int height = (int) Math.ceil(pitch * ROWS - gap) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float pitch = pitch(getWidth());
+        float size = pitch - gap;
+        if (size <= 0) return;
+
+        int columns = (firstRow + daysInYear + ROWS - 1) / ROWS;
+        // Centre the weeks this year actually has
+        float left = getPaddingLeft()
+                + (getWidth() - getPaddingLeft() - getPaddingRight() - (columns * pitch - gap)) / 2f;
+        float top = getPaddingTop();
+
+        for (int day = 0; day < daysInYear; day++) {
+            int slot = firstRow + day;
+            float x = left + (slot / ROWS) * pitch;
+            float y = top + (slot % ROWS) * pitch;
+            cell.set(x, y, x + size, y + size);
+            canvas.drawRoundRect(cell, corner, corner, levelPaints[levels[day]]);
+            if (day == todayIndex) {
+                canvas.drawRoundRect(cell, corner, corner, todayPaint);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.afonso.fiveminutediary.adapter;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.image.ImageStore;
+import com.afonso.fiveminutediary.testing.Budget;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Row building and binding for the history list at heavy-user sizes.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class DiaryAdapterScaleTest {
+
+    private static final long SEED = 20260101L;
+
+    /** Row building is linear; this is per entry, on top of a fixed allowance. */
+    private static final double BUILD_MICROS_PER_ENTRY = 150;
+    /** Preview, labels and image lookup come to 2-3 KB a row. */
+    private static final long BUILD_BYTES_PER_ENTRY = 4 * 1024;
+
+    private static final int BINDS = 2_000;
+    private static final double BIND_MILLIS = 8;
+    /** A bind sets precomputed text and asks the loader for a cached thumbnail; a few KB at most. */
+    private static final long BIND_BYTES = 4 * 1024;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} entries")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {5_000}, {20_000}});
+    }
+
+    private final int size;
+    private Context context;
+    private List<DiaryEntry> diary;
+
+    public DiaryAdapterScaleTest(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.AppTheme);
+        diary = SyntheticDiary.withEntries(size, SEED);
+        SyntheticDiary.writeImagePool(ImageStore.getInstance(context).getImageDir());
+    }
+
+    @Test
+    public void buildsRowsWithinBudget() {
+        EntryRowBuilder builder = new EntryRowBuilder(context.getResources(), ImageStore.getInstance(context));
+        // Warm up resources and class loading
+        builder.build(diary.subList(0, 50), Collections.emptyList(), null, Runnable::run);
+
+        EntryRowBuilder.Result[] result = new EntryRowBuilder.Result[1];
+        Budget.measure(() -> result[0] = builder.build(diary, Collections.emptyList(), null, Runnable::run))
+                .assertTimeWithin("Building " + size + " rows", 500 + size * BUILD_MICROS_PER_ENTRY / 1000)
+                .assertAllocationWithin("Building " + size + " rows", size * BUILD_BYTES_PER_ENTRY);
+
+        assertEquals(size, result[0].rows.size());
+        assertEquals(size, result[0].sections.getPositionCount());
+    }
+
+    @Test
+    public void rebuildReusesUnchangedRows() {
+        EntryRowBuilder builder = new EntryRowBuilder(context.getResources(), ImageStore.getInstance(context));
+        List<EntryRow> first = builder.build(diary, Collections.emptyList(), null, Runnable::run).rows;
+
+        List<DiaryEntry> edited = new ArrayList<>(diary);
+        DiaryEntry changed = new DiaryEntry(diary.get(0).getId(), SyntheticDiary.USER_ID,
+                diary.get(0).getTimestamp(), diary.get(0).getText() + " edited", null, null);
+        edited.set(0, changed);
+
+        EntryRowBuilder.Result[] result = new EntryRowBuilder.Result[1];
+        Budget.measure(() -> result[0] = builder.build(edited, first, null, Runnable::run))
+                .assertTimeWithin("Rebuilding " + size + " rows", 200 + size * BUILD_MICROS_PER_ENTRY / 4000);
+
+        List<EntryRow> second = result[0].rows;
+        assertNotSame(first.get(0), second.get(0));
+        for (int i = 1; i < size; i++) {
+            assertSame("Row " + i + " was rebuilt", first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void bindsRowsWithinBudget() throws InterruptedException {
+        RecyclerView recyclerView = new RecyclerView(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        DiaryAdapter adapter = new DiaryAdapter(context, new DiaryAdapter.OnEntryClickListener() {
+            @Override
+            public void onEntryClick(DiaryEntry entry) {
+            }
+
+            @Override
+            public void onDeleteClick(DiaryEntry entry) {
+            }
+        });
+        recyclerView.setAdapter(adapter);
+
+        adapter.setEntries(diary);
+        awaitItemCount(adapter, size);
+        assertEquals(size, adapter.getSectionIndex().getPositionCount());
+
+        // A screenful of holders, recycled across the whole list like a fling would
+        List<DiaryAdapter.EntryViewHolder> holders = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            holders.add(adapter.onCreateViewHolder(recyclerView, 0));
+        }
+        int stride = Math.max(1, size / BINDS);
+        for (int i = 0; i < 200; i++) {
+            adapter.onBindViewHolder(holders.get(i % holders.size()), i % size);
+        }
+
+        Budget.measure(() -> {
+            for (int i = 0; i < BINDS; i++) {
+                DiaryAdapter.EntryViewHolder holder = holders.get(i % holders.size());
+                adapter.onViewRecycled(holder);
+                adapter.onBindViewHolder(holder, (i * stride) % size);
+            }
+        })
+                .assertTimeWithin(BINDS + " binds over " + size + " rows", BINDS * BIND_MILLIS)
+                .assertAllocationWithin(BINDS + " binds over " + size + " rows", BINDS * BIND_BYTES);
+
+        View bound = holders.get(0).itemView;
+        assertTrue(bound.findViewById(R.id.previewText) != null);
+    }
+
+    /** Rows are built on the compute pool and posted back; pump the main looper until they land. */
+    private static void awaitItemCount(DiaryAdapter adapter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (adapter.getItemCount() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Adapter has " + adapter.getItemCount() + " of " + expected + " rows");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.afonso.fiveminutediary.backup;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+import com.afonso.fiveminutediary.utils.DateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The importer's one-entry-a-day rule ({@link DiaryImporter#claimDay}), which decides what
+ * an archive adds to a diary that already has entries.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DiaryImporterDaysTest {
+
+    private static final ZoneId LISBON = ZoneId.of("Europe/Lisbon");
+
+    private final TimeZone originalZone = TimeZone.getDefault();
+
+    @Before
+    public void useZoneWithDst() {
+        TimeZone.setDefault(TimeZone.getTimeZone(LISBON));
+        DateUtils.invalidateZone();
+    }
+
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(originalZone);
+        DateUtils.invalidateZone();
+    }
+
+    @Test
+    public void secondEntryOfADayIsSkipped() {
+        BitSet days = new BitSet();
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 6, 10, 0, 5)));
+        assertFalse(DiaryImporter.claimDay(days, at(2025, 6, 10, 23, 55)));
+    }
+
+    @Test
+    public void midnightSeparatesDays() {
+        BitSet days = new BitSet();
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 6, 10, 23, 59)));
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 6, 11, 0, 0)));
+    }
+
+    @Test
+    public void daysOfDstChangesAreOneDayEach() {
+        BitSet days = new BitSet();
+        // 2025-03-30 is 23 hours long in Lisbon, 2025-10-26 is 25
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 3, 30, 0, 30)));
+        assertFalse(DiaryImporter.claimDay(days, at(2025, 3, 30, 23, 30)));
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 3, 31, 0, 10)));
+
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 10, 26, 0, 30)));
+        assertFalse(DiaryImporter.claimDay(days, at(2025, 10, 26, 23, 30)));
+        assertTrue(DiaryImporter.claimDay(days, at(2025, 10, 27, 0, 10)));
+    }
+
+    @Test
+    public void daysAlreadyInTheDiaryAreSkipped() {
+        List<DiaryEntry> diary = SyntheticDiary.withEntries(500, 3L);
+        BitSet days = new BitSet();
+        // What loadExistingDays does with the current diary
+        for (DiaryEntry entry : diary) {
+            assertTrue(DiaryImporter.claimDay(days, entry.getTimestamp()));
+        }
+
+        // Re-importing the same diary adds nothing, at any time of those days
+        int added = 0;
+        for (DiaryEntry entry : diary) {
+            if (DiaryImporter.claimDay(days, entry.getTimestamp() - 60_000)) added++;
+        }
+        assertEquals(0, added);
+    }
+
+    @Test
+    public void unusableTimestampsAreSkipped() {
+        BitSet days = new BitSet();
+        assertFalse(DiaryImporter.claimDay(days, 0));
+        assertFalse(DiaryImporter.claimDay(days, -1));
+        assertTrue(days.isEmpty());
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(LISBON).toInstant().toEpochMilli();
+    }
+}
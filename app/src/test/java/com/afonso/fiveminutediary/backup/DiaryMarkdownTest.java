@@ -0,0 +1,160 @@
+package com.afonso.fiveminutediary.backup;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Text and formatting written to Markdown by {@link DiaryMarkdown#appendText} and read back
+ * by {@link DiaryMarkdown#readText}.
+ *
+ * <p>Spans come back split at line ends, so formatting is compared per character rather
+ * than as JSON. Line breaks carry no formatting, and bold and italic are dropped from
+ * whitespace at the edges of a run, as documented.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DiaryMarkdownTest {
+
+    private static final String[] TYPES = {"b", "i", "u", "c", "h"};
+
+    @Test
+    public void plainTextRoundTrips() {
+        assertRoundTrip("Walked by the river, then coffee.", null);
+    }
+
+    @Test
+    public void escapedCharactersRoundTrip() {
+        StringBuilder text = new StringBuilder("Every one of ");
+        for (char c : DiaryMarkdown.ESCAPED.toCharArray()) {
+            text.append(c).append(' ');
+        }
+        text.append("stays text, as do **stars**, _under_scores_ and <b>tags</b>");
+        assertRoundTrip(text.toString(), null);
+    }
+
+    @Test
+    public void lineStartCharactersRoundTrip() {
+        assertRoundTrip("- not a list\n+ nor this\n= nor a heading underline\n"
+                + "1. not numbered\n2) either\n# not a heading\n> not a quote", null);
+    }
+
+    @Test
+    public void trailingBackslashRoundTrips() {
+        assertRoundTrip("saved to C:\\diary\\\nnext line ends in two \\\\\nlast", null);
+    }
+
+    @Test
+    public void nestedMarkersRoundTrip() {
+        //         0         1         2         3
+        //         0123456789012345678901234567890123
+        String text = "bold italic under color mark plain";
+        String formatting = "[" + span(0, 16, "b") + "," + span(5, 22, "i") + ","
+                + span(12, 28, "u") + "," + color(18, 27, "c", 0xFFEF4444) + ","
+                + color(24, 33, "h", 0xFFFEF3C7) + "]";
+        assertRoundTrip(text, formatting);
+    }
+
+    @Test
+    public void boldAndItalicChangingTogetherRoundTrip() {
+        // Every bold/italic transition the writer can emit as one run of asterisks
+        String text = "abcdefgh";
+        String formatting = "[" + span(1, 3, "b") + "," + span(2, 5, "i") + ","
+                + span(4, 6, "b") + "," + span(6, 7, "i") + "]";
+        assertRoundTrip(text, formatting);
+    }
+
+    @Test
+    public void formattingAcrossLinesRoundTrips() {
+        String text = "first line\nsecond line\n\nthird";
+        String formatting = "[" + span(6, 17, "b") + "," + span(3, 26, "u") + ","
+                + color(0, 28, "h", 0xFFD1FAE5) + "]";
+        assertRoundTrip(text, formatting);
+    }
+
+    @Test
+    public void lineBreaksBecomeHardAndParagraphBreaks() {
+        DiaryEntry entry = roundTrip("\n\nfirst line\nsecond line\n   \nafter blanks\n\n\n\nnew paragraph\n", null);
+        assertEquals("first line\nsecond line\n   \nafter blanks\n\nnew paragraph", entry.getText());
+    }
+
+    @Test
+    public void syntheticDiaryRoundTrips() {
+        for (DiaryEntry original : SyntheticDiary.withEntries(300, 20260101L)) {
+            assertRoundTrip(original.getText(), original.getFormatting());
+        }
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private static DiaryEntry roundTrip(String text, String formatting) {
+        StringBuilder markdown = new StringBuilder();
+        DiaryMarkdown.appendText(text, formatting, markdown);
+        List<String> lines = Arrays.asList(markdown.toString().split("\n", -1));
+
+        DiaryEntry entry = new DiaryEntry();
+        DiaryMarkdown.readText(lines, entry);
+        return entry;
+    }
+
+    private static void assertRoundTrip(String text, String formatting) {
+        DiaryEntry entry = roundTrip(text, formatting);
+        assertEquals(text, entry.getText());
+        if (formatting == null) {
+            assertNull(entry.getFormatting());
+            return;
+        }
+
+        int[][] expected = styles(text, formatting);
+        int[][] actual = styles(entry.getText(), entry.getFormatting());
+        for (int c = 0; c < text.length(); c++) {
+            char ch = text.charAt(c);
+            if (ch == '\n') continue;
+            for (int level = 0; level < TYPES.length; level++) {
+                boolean emphasis = level <= 1;
+                if (emphasis && Character.isWhitespace(ch)) continue;
+                assertEquals("'" + TYPES[level] + "' at " + c + " of \"" + text + "\"",
+                        expected[level][c], actual[level][c]);
+            }
+        }
+    }
+
+    /** One value per level and character, as DiaryMarkdown reads formatting JSON. */
+    private static int[][] styles(String text, String formatting) {
+        int[][] styles = new int[TYPES.length][text.length()];
+        if (formatting == null) return styles;
+        try {
+            JSONArray spans = new JSONArray(formatting);
+            for (int i = 0; i < spans.length(); i++) {
+                JSONObject span = spans.getJSONObject(i);
+                int level = Arrays.asList(TYPES).indexOf(span.getString("t"));
+                int value = level >= 3 ? span.getInt("v") : 1;
+                for (int c = span.getInt("s"); c < span.getInt("e"); c++) {
+                    styles[level][c] = value;
+                }
+            }
+        } catch (JSONException e) {
+            throw new AssertionError(e);
+        }
+        return styles;
+    }
+
+    private static String span(int start, int end, String type) {
+        return "{\"s\":" + start + ",\"e\":" + end + ",\"t\":\"" + type + "\"}";
+    }
+
+    private static String color(int start, int end, String type, int value) {
+        return "{\"s\":" + start + ",\"e\":" + end + ",\"t\":\"" + type + "\",\"v\":" + value + "}";
+    }
+}
@@ -0,0 +1,55 @@
+package com.afonso.fiveminutediary.data;
+
+import com.afonso.fiveminutediary.testing.Budget;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Per-entry work done across a heavy user's whole diary. Work on a single entry, however
+ * long, is covered by {@link LongEntryTest}.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class EntryScaleTest {
+
+    private static final long SEED = 20260101L;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} entries")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {5_000}, {20_000}});
+    }
+
+    private final int size;
+    private List<DiaryEntry> diary;
+
+    public EntryScaleTest(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        diary = SyntheticDiary.withEntries(size, SEED);
+    }
+
+    @Test
+    public void hashesWholeDiaryWithinBudget() {
+        long[] sum = new long[1];
+        Budget.measure(() -> {
+            for (DiaryEntry entry : diary) {
+                sum[0] += ContentHasher.hashOf(entry);
+            }
+        })
+                .assertTimeWithin("Hashing " + size + " entries", 50 + size / 100.0)
+                .assertAllocationWithin("Hashing " + size + " entries", 64 * 1024);
+
+        assertNotEquals(0, sum[0]);
+    }
+}
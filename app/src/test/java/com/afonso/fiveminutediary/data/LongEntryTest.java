@@ -0,0 +1,174 @@
+package com.afonso.fiveminutediary.data;
+
+import android.app.Application;
+import android.content.Intent;
+import android.os.Parcel;
+import android.text.Editable;
+import android.text.SpannableString;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.afonso.fiveminutediary.R;
+import com.afonso.fiveminutediary.testing.Budget;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+import com.afonso.fiveminutediary.utils.DateUtils;
+import com.afonso.fiveminutediary.viewmodel.DetailActivity;
+import com.afonso.fiveminutediary.viewmodel.ExpandedEditActivity;
+import com.afonso.fiveminutediary.viewmodel.ListActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Opening and editing the longest formatted entry of a heavy user's diary, through
+ * DetailActivity and ExpandedEditActivity. The screens read the repository's cache, filled
+ * with the diary through {@link DataRepository#setCachedEntriesForTesting}; nobody is signed
+ * in, so nothing reaches Firestore. Work across the whole diary is covered by
+ * {@link EntryScaleTest}.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class LongEntryTest {
+
+    private static final long SEED = 20260101L;
+
+    private static final int MAX_INTENT_BYTES = 512;
+    /** Inflating the detail screen and laying out the text. */
+    private static final double OPEN_MILLIS = 250;
+    private static final int KEYSTROKES = 200;
+    private static final double KEYSTROKE_MILLIS = 16;
+    /**
+     * The undo snapshot the editor takes on every change (a copy of the text and its
+     * formatting JSON) and the editor's relayout.
+     */
+    private static final long KEYSTROKE_BYTES = 256 * 1024;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} entries")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {5_000}, {20_000}});
+    }
+
+    private final int size;
+    private DataRepository repo;
+    private List<DiaryEntry> diary;
+    private DiaryEntry longest;
+
+    public LongEntryTest(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        diary = SyntheticDiary.withEntries(size, SEED);
+        longest = diary.stream()
+                .filter(entry -> entry.getFormatting() != null)
+                .max(Comparator.comparingInt(entry -> entry.getText().length()))
+                .orElseThrow(AssertionError::new);
+
+        Application application = ApplicationProvider.getApplicationContext();
+        repo = DataRepository.getInstance(application);
+        repo.setCachedEntriesForTesting(diary);
+    }
+
+    @After
+    public void tearDown() {
+        repo.clearCache();
+    }
+
+    @Test
+    public void openIntentCarriesOnlyTheEntryId() {
+        // Created but not started: onEntryClick only needs the activity attached
+        ListActivity list = Robolectric.buildActivity(ListActivity.class).get();
+        list.onEntryClick(longest);
+
+        Intent intent = shadowOf(list).getNextStartedActivity();
+        assertEquals(DetailActivity.class.getName(), intent.getComponent().getClassName());
+        assertEquals(longest.getId(), intent.getStringExtra(DetailActivity.EXTRA_ENTRY_ID));
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            intent.writeToParcel(parcel, 0);
+            assertTrue("Intent is " + parcel.dataSize() + " bytes for a "
+                            + longest.getText().length() + "-char entry",
+                    parcel.dataSize() <= MAX_INTENT_BYTES);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void opensDetailWithinBudget() {
+        // Warm up class loading, layout inflation and span classes on another formatted entry
+        DiaryEntry other = diary.stream()
+                .filter(entry -> entry.getFormatting() != null && entry != longest)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        openDetail(other).pause().stop().destroy();
+
+        @SuppressWarnings("unchecked")
+        ActivityController<DetailActivity>[] controller = new ActivityController[1];
+        Budget.measure(() -> controller[0] = openDetail(longest))
+                .assertTimeWithin("Opening a " + longest.getText().length() + "-char entry in a "
+                        + size + "-entry diary", OPEN_MILLIS);
+
+        TextView content = controller[0].get().findViewById(R.id.detailContent);
+        assertEquals(longest.getText(), content.getText().toString());
+        controller[0].pause().stop().destroy();
+    }
+
+    @Test
+    public void handlesKeystrokesWithinBudget() {
+        repo.getEditingSession(DateUtils.today()).setContent(
+                TextFormattingSerializer.deserializeFormatting(longest.getText(), longest.getFormatting()));
+        ActivityController<ExpandedEditActivity> controller =
+                Robolectric.buildActivity(ExpandedEditActivity.class).setup();
+        EditText editor = controller.get().findViewById(R.id.expandedInput);
+        assertEquals(longest.getText(), editor.getText().toString());
+
+        Budget.measure(() -> {
+            Editable text = editor.getText();
+            for (int i = 0; i < KEYSTROKES; i++) {
+                text.insert(text.length() / 2, "a");
+            }
+        })
+                .assertTimeWithin(KEYSTROKES + " keystrokes", KEYSTROKES * KEYSTROKE_MILLIS)
+                .assertAllocationWithin(KEYSTROKES + " keystrokes", KEYSTROKES * KEYSTROKE_BYTES);
+
+        // Leaving the editor hands the draft to the shared session
+        controller.pause();
+        assertEquals(editor.getText().toString(),
+                repo.getEditingSession(DateUtils.today()).getContent().toString());
+        controller.stop().destroy();
+    }
+
+    @Test
+    public void copiesOnlySupportedSpans() {
+        SpannableString formatted = TextFormattingSerializer.deserializeFormatting(
+                longest.getText(), longest.getFormatting());
+        SpannableString copy = TextFormattingSerializer.copyFormatted(formatted);
+
+        assertTrue(TextFormattingSerializer.hasFormatting(copy));
+        assertEquals(TextFormattingSerializer.serializeFormatting(formatted),
+                TextFormattingSerializer.serializeFormatting(copy));
+    }
+
+    private ActivityController<DetailActivity> openDetail(DiaryEntry entry) {
+        Intent intent = new Intent(ApplicationProvider.getApplicationContext(), DetailActivity.class)
+                .putExtra(DetailActivity.EXTRA_ENTRY_ID, entry.getId());
+        return Robolectric.buildActivity(DetailActivity.class, intent).setup();
+    }
+}
@@ -0,0 +1,128 @@
+package com.afonso.fiveminutediary.search;
+
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.utils.AppExecutors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Query parsing ({@link SearchIndex#toMatchExpression}) and matching against the FTS4 table.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    // ─── Query parsing ───────────────────────────────────────────────────────
+
+    @Test
+    public void everyWordBecomesAPrefixTerm() {
+        assertEquals("walk* by* the* river*", SearchIndex.toMatchExpression("Walk by the RIVER"));
+        assertEquals("2025* 10* 26*", SearchIndex.toMatchExpression("2025-10-26"));
+    }
+
+    @Test
+    public void operatorsAreSearchedForAsWords() {
+        assertEquals("coffee* and* rain* or* sun* not* tired*",
+                SearchIndex.toMatchExpression("coffee AND rain OR sun NOT tired"));
+        assertEquals("near* 3* me*", SearchIndex.toMatchExpression("NEAR/3 me"));
+    }
+
+    @Test
+    public void punctuationAndQuotesAreDropped() {
+        assertEquals("quoted* phrase* minus* paren* col* on*",
+                SearchIndex.toMatchExpression("\"quoted phrase\" -minus (paren) col:on * ^"));
+        assertEquals("don* t*", SearchIndex.toMatchExpression("don't"));
+    }
+
+    @Test
+    public void accentsAndCaseAreKeptForTheTokenizer() {
+        assertEquals("coração*", SearchIndex.toMatchExpression("CORAÇÃO"));
+    }
+
+    @Test
+    public void surrogatePairsAreNotSplit() {
+        // A letter outside the BMP stays part of its word; an emoji separates words
+        assertEquals("𠜎x*", SearchIndex.toMatchExpression("𠜎x"));
+        assertEquals("good* mood*", SearchIndex.toMatchExpression("good😀mood"));
+        // A lone surrogate is punctuation, not half a word
+        assertEquals("a*", SearchIndex.toMatchExpression("a\uD83D"));
+    }
+
+    @Test
+    public void nothingSearchableGivesNull() {
+        assertNull(SearchIndex.toMatchExpression(null));
+        assertNull(SearchIndex.toMatchExpression(""));
+        assertNull(SearchIndex.toMatchExpression("   "));
+        assertNull(SearchIndex.toMatchExpression("?!... --- \"\" * 😀"));
+    }
+
+    // ─── Matching ────────────────────────────────────────────────────────────
+
+    @Test
+    public void accentsAreFoldedInTextAndQuery() throws InterruptedException {
+        SearchIndex index = SearchIndex.getInstance(ApplicationProvider.getApplicationContext());
+        index.clear();
+        index.index(entry("accented", "Hoje senti o coração leve"));
+        index.index(entry("plain", "Escrito sem acentos: coracao cheio"));
+        index.index(entry("other", "Nothing to find here"));
+        awaitDiskIO();
+
+        Set<String> both = new HashSet<>(Arrays.asList("accented", "plain"));
+        assertEquals(both, search(index, "coracao"));
+        assertEquals(both, search(index, "coração"));
+        assertEquals(both, search(index, "CORAÇ"));
+        assertTrue(search(index, "coraçoes").isEmpty());
+    }
+
+    private static DiaryEntry entry(String id, String text) {
+        return new DiaryEntry(id, "user", 1_750_000_000_000L, text, null);
+    }
+
+    /** Index writes run on the serial disk executor; waits for those queued so far. */
+    private static void awaitDiskIO() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AppExecutors.diskIO().execute(done::countDown);
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    /** Results are posted to the main thread; pumps its looper until they land. */
+    private static Set<String> search(SearchIndex index, String query) throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        List<SearchResult>[] found = new List[1];
+        index.search(query, (searched, results) -> found[0] = results);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (found[0] == null) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("No results for '" + query + "'");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (SearchResult result : found[0]) {
+            ids.add(result.entryId);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,71 @@
+package com.afonso.fiveminutediary.testing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures wall time and bytes allocated by the current thread around a block of work,
+ * and asserts them against a budget.
+ *
+ * <p>Robolectric runs views and resources on shadows, so absolute numbers are higher than
+ * on a device. Budgets are set to catch order-of-magnitude regressions (work that grows
+ * with diary size, per-bind rebuilding), not to benchmark.</p>
+ *
+ * <p>Allocation is counted per thread and doesn't depend on the machine, so those budgets
+ * are checked as written. Wall time does: on a shared CI machine a test can stall for
+ * reasons of its own, so time budgets are checked {@link #TIME_SLACK} times over unless
+ * the tests run with {@code -Dbudget.strictTime=true}, e.g. when profiling locally.</p>
+ */
+public final class Budget {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** Multiplier on time budgets outside strict mode; still catches work that grows with size. */
+    public static final double TIME_SLACK = Boolean.getBoolean("budget.strictTime") ? 1 : 10;
+
+    public final long nanos;
+    public final long allocatedBytes;
+
+    private Budget(long nanos, long allocatedBytes) {
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public static Budget measure(Runnable work) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        work.run();
+        long nanos = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        return new Budget(nanos, bytesBefore < 0 ? -1 : bytesAfter - bytesBefore);
+    }
+
+    /** Fails if the work took longer than maxMillis in total, times {@link #TIME_SLACK}. */
+    public Budget assertTimeWithin(String what, double maxMillis) {
+        maxMillis *= TIME_SLACK;
+        double millis = nanos / 1_000_000.0;
+        assertTrue(String.format("%s took %.1f ms, budget %.1f ms", what, millis, maxMillis),
+                millis <= maxMillis);
+        return this;
+    }
+
+    /** Fails if the work allocated more than maxBytes in total. Skipped where the JVM can't tell. */
+    public Budget assertAllocationWithin(String what, long maxBytes) {
+        if (allocatedBytes < 0) return this;
+        assertTrue(String.format("%s allocated %,d bytes, budget %,d", what, allocatedBytes, maxBytes),
+                allocatedBytes <= maxBytes);
+        return this;
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,187 @@
+package com.afonso.fiveminutediary.testing;
+
+import android.graphics.Bitmap;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Deterministic generator of diaries shaped like a heavy user's.
+ *
+ * <p>Entries are written most evenings, going back day by day from a fixed anchor date.
+ * Most are a short paragraph; a long tail runs to a few thousand words. Roughly one span
+ * every few dozen words carries bold, italic, underline, colour or highlight formatting,
+ * and about one entry in eight has a header image drawn from a small shared pool (so the
+ * content-addressed store dedupes them, as it would for a real user re-using photos).
+ * The same seed always yields the same diary.</p>
+ */
+public final class SyntheticDiary {
+
+    public static final String USER_ID = "synthetic-user";
+
+    /** 2026-01-01, the newest day of every generated diary. */
+    private static final int ANCHOR_YEAR = 2026;
+
+    private static final double SKIPPED_DAY_RATE = 0.1;
+    private static final double IMAGE_RATE = 0.125;
+    private static final int IMAGE_POOL_SIZE = 24;
+    private static final int WORDS_PER_SPAN = 40;
+
+    private static final String[] WORDS = {
+            "today", "I", "felt", "calm", "after", "a", "long", "walk", "by", "the", "river",
+            "and", "wrote", "about", "work", "family", "coffee", "rain", "sunlight", "tired",
+            "grateful", "for", "small", "things", "like", "music", "friends", "dinner", "with",
+            "my", "sister", "tomorrow", "will", "be", "better", "if", "sleep", "early",
+            "hoje", "senti", "saudade", "manhã", "coração", "café", "amanhã", "família",
+            "trabalho", "caminhada", "pôr-do-sol", "obrigado", "lição", "não", "também",
+            "meeting", "project", "deadline", "book", "chapter", "garden", "flowers", "quiet"
+    };
+
+    private static final String[] SPAN_TYPES = {"b", "i", "u", "c", "h"};
+    /** The editor's text colours and highlights. */
+    private static final int[] COLORS = {
+            0xFFEF4444, 0xFF3B82F6, 0xFF10B981, 0xFFFEF3C7, 0xFFD1FAE5, 0xFFFCE7F3
+    };
+
+    private SyntheticDiary() {
+    }
+
+    /** A diary of exactly count entries, newest first. */
+    public static List<DiaryEntry> withEntries(int count, long seed) {
+        Random random = new Random(seed);
+        Calendar cal = anchor();
+        List<DiaryEntry> entries = new ArrayList<>(count);
+
+        while (entries.size() < count) {
+            if (random.nextDouble() >= SKIPPED_DAY_RATE) {
+                entries.add(entryFor(entries.size(), cal, random));
+            }
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        return entries;
+    }
+
+    /** A diary spanning the given number of years before the anchor date, newest first. */
+    public static List<DiaryEntry> forYears(int years, long seed) {
+        Random random = new Random(seed);
+        Calendar cal = anchor();
+        Calendar oldest = anchor();
+        oldest.add(Calendar.YEAR, -years);
+        List<DiaryEntry> entries = new ArrayList<>();
+
+        while (cal.after(oldest)) {
+            if (random.nextDouble() >= SKIPPED_DAY_RATE) {
+                entries.add(entryFor(entries.size(), cal, random));
+            }
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        return entries;
+    }
+
+    /** Hash of the i-th pooled image, as stored in {@link DiaryEntry#getImageHash()}. */
+    public static String imageHash(int index) {
+        return String.format("%032x", 0xd1a7L * 31 + index);
+    }
+
+    /**
+     * Writes every pooled image and its thumbnail into an image store directory, so rows
+     * resolve real files.
+     */
+    public static void writeImagePool(File imageDir) throws IOException {
+        if (!imageDir.isDirectory() && !imageDir.mkdirs()) {
+            throw new IOException("Cannot create " + imageDir);
+        }
+        for (int i = 0; i < IMAGE_POOL_SIZE; i++) {
+            writeJpeg(new File(imageDir, imageHash(i) + ".jpg"), 640, 480, COLORS[i % COLORS.length]);
+            writeJpeg(new File(imageDir, imageHash(i) + "_thumb.jpg"), 256, 192, COLORS[i % COLORS.length]);
+        }
+    }
+
+    private static Calendar anchor() {
+        Calendar cal = Calendar.getInstance(TimeZone.getDefault());
+        cal.clear();
+        cal.set(ANCHOR_YEAR, Calendar.JANUARY, 1, 21, 0, 0);
+        return cal;
+    }
+
+    private static DiaryEntry entryFor(int index, Calendar day, Random random) {
+        // Evening writing with some spread, always on the same local day
+        long timestamp = day.getTimeInMillis() - random.nextInt(3 * 60 * 60 * 1000);
+        String text = text(random);
+
+        DiaryEntry entry = new DiaryEntry(String.format("entry-%06d", index), USER_ID,
+                timestamp, text, null, formatting(text, random));
+        if (random.nextDouble() < IMAGE_RATE) {
+            entry.setImageHash(imageHash(random.nextInt(IMAGE_POOL_SIZE)));
+            entry.setImageWidth(640);
+            entry.setImageHeight(480);
+        }
+        return entry;
+    }
+
+    /** 80% short (20-150 words), 18% medium (150-600), 2% long (600-3000). */
+    private static String text(Random random) {
+        double bucket = random.nextDouble();
+        int words;
+        if (bucket < 0.8) {
+            words = 20 + random.nextInt(130);
+        } else if (bucket < 0.98) {
+            words = 150 + random.nextInt(450);
+        } else {
+            words = 600 + random.nextInt(2400);
+        }
+
+        StringBuilder text = new StringBuilder(words * 7);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(i % 17 == 0 ? ".\n" : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /** Formatting JSON in TextFormattingSerializer's format, or null for plain entries. */
+    private static String formatting(String text, Random random) {
+        int spans = (text.length() / 6) / WORDS_PER_SPAN;
+        if (spans == 0 || random.nextInt(3) == 0) {
+            return null;
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < spans; i++) {
+            int start = random.nextInt(text.length() - 1);
+            int end = Math.min(text.length(), start + 3 + random.nextInt(40));
+            String type = SPAN_TYPES[random.nextInt(SPAN_TYPES.length)];
+
+            if (i > 0) json.append(',');
+            json.append("{\"s\":").append(start)
+                    .append(",\"e\":").append(end)
+                    .append(",\"t\":\"").append(type).append('"');
+            if (type.equals("c") || type.equals("h")) {
+                json.append(",\"v\":").append(COLORS[random.nextInt(COLORS.length)]);
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static void writeJpeg(File file, int width, int height, int color) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, out);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+}
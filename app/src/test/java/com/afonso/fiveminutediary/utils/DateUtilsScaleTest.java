@@ -0,0 +1,95 @@
+package com.afonso.fiveminutediary.utils;
+
+import com.afonso.fiveminutediary.data.DiaryEntry;
+import com.afonso.fiveminutediary.testing.Budget;
+import com.afonso.fiveminutediary.testing.SyntheticDiary;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Epoch-day conversion over long diaries, including days that DST makes shorter or longer.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DateUtilsScaleTest {
+
+    private final TimeZone originalZone = TimeZone.getDefault();
+
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(originalZone);
+        DateUtils.invalidateZone();
+    }
+
+    @Test
+    public void convertsWithoutAllocatingOnceWarm() {
+        List<DiaryEntry> diary = SyntheticDiary.withEntries(20_000, 7L);
+        long[] timestamps = new long[diary.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = diary.get(i).getTimestamp();
+        }
+        int[] days = new int[timestamps.length];
+
+        // Warm the offset table, and the JIT
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < timestamps.length; i++) {
+                days[i] = DateUtils.epochDay(timestamps[i]);
+            }
+        }
+
+        // Sequential newest-first scans stay within a few cached offset periods
+        Budget.measure(() -> {
+            for (int i = 0; i < 200; i++) {
+                days[i] = DateUtils.epochDay(timestamps[i]);
+            }
+        }).assertAllocationWithin("Converting 200 recent timestamps", 1024);
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(LocalDate.ofEpochDay(days[i]),
+                    java.time.Instant.ofEpochMilli(timestamps[i]).atZone(ZoneId.systemDefault()).toLocalDate());
+        }
+    }
+
+    @Test
+    public void handlesDstDays() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Lisbon"));
+        DateUtils.invalidateZone();
+
+        // 2025-03-30 is 23 hours long in Lisbon, 2025-10-26 is 25
+        int springDay = (int) LocalDate.of(2025, 3, 30).toEpochDay();
+        int autumnDay = (int) LocalDate.of(2025, 10, 26).toEpochDay();
+        assertEquals(23 * 3_600_000L, DateUtils.endOfDayExclusive(springDay) - DateUtils.startOfDay(springDay));
+        assertEquals(25 * 3_600_000L, DateUtils.endOfDayExclusive(autumnDay) - DateUtils.startOfDay(autumnDay));
+
+        // Every millisecond of a day maps back to it, right up to the exclusive end
+        for (int day : new int[]{springDay, autumnDay}) {
+            long start = DateUtils.startOfDay(day);
+            long end = DateUtils.endOfDayExclusive(day);
+            assertEquals(day, DateUtils.epochDay(start));
+            assertEquals(day, DateUtils.epochDay(end - 1));
+            assertEquals(day + 1, DateUtils.epochDay(end));
+        }
+    }
+
+    @Test
+    public void yearsOfEntriesMapToDistinctDays() {
+        List<DiaryEntry> diary = SyntheticDiary.forYears(10, 11L);
+        int previous = Integer.MAX_VALUE;
+        for (DiaryEntry entry : diary) {
+            int day = DateUtils.epochDay(entry.getTimestamp());
+            // One entry per day, newest first
+            assertTrue(day < previous);
+            previous = day;
+        }
+    }
+}